@@ -7,13 +7,19 @@ if (!(Test-Path "bin")) { New-Item -ItemType Directory -Path "bin" | Out-Null }
 
 Write-Host "Compiling Java sources..." -ForegroundColor Cyan
 
-# Compile all sources (default packages: board, game, gui, pieces, and Main)
+# Compile all sources (default packages: bitbase, board, book, engine, game, gui, perft, pieces, tournament, uci, and Main)
 javac -encoding UTF-8 -d bin `
 	src\chess\Main.java `
+	src\chess\bitbase\*.java `
 	src\chess\board\*.java `
+	src\chess\book\*.java `
+	src\chess\engine\*.java `
 	src\chess\game\*.java `
 	src\chess\gui\*.java `
-	src\chess\pieces\*.java
+	src\chess\perft\*.java `
+	src\chess\pieces\*.java `
+	src\chess\tournament\*.java `
+	src\chess\uci\*.java
 
 if ($LASTEXITCODE -ne 0) {
 	Write-Error "Compilation failed. See errors above."; exit 1
@@ -0,0 +1,149 @@
+package bitbase;
+
+import static board.BitboardPosition.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import board.BitboardPosition;
+import board.Bitboards;
+import board.Move;
+import board.MoveGenerator;
+import board.MoveList;
+
+/**
+ * Retrograde analysis of one king-and-piece versus king endgame, with the stronger side as White.
+ * - Every placement of the three pieces with either side to move is one entry (see Bitbases.index).
+ *   Illegal placements (overlapping pieces, touching kings, a pawn on the first or last rank, the side
+ *   not to move in check) are never resolved.
+ * - The successors of each legal entry are found once with MoveGenerator: an entry of this table, a
+ *   draw (the piece is captured, or promotes to a knight or bishop), or a solved entry of the queen or
+ *   rook table after a promotion.
+ * - Pass d resolves the entries that are mate in exactly d plies: White to move when some move reaches
+ *   a Black loss in d - 1, Black to move when every move reaches a White win and the longest in d - 1.
+ *   Black checkmated is the loss in 0. A pass only reads entries of the other side to move, which it does
+ *   not write, so its entries are resolved in parallel on a ForkJoinPool.
+ * Whatever is left unresolved is drawn.
+ */
+final class BitbaseGenerator {
+    static final short UNRESOLVED = -1;
+    static final short ILLEGAL = -2;
+
+    // Successor codes below zero: a draw, or a solved entry outside the table (-2 - its plies to mate)
+    private static final int DRAW_SUCCESSOR = -1;
+
+    private final int type;
+    private final short[][] solved;
+    private final ForkJoinPool pool;
+    private final short[] dtm = new short[Bitbases.ENTRIES];
+    private final int[][] successors = new int[Bitbases.ENTRIES][];
+    // Longest mate reachable outside the table, so passes do not stop before promotions are exhausted
+    private int externalHorizon = -1;
+
+    /**
+     * @param type   the extra piece (PAWN, ROOK or QUEEN)
+     * @param solved finished tables by piece type (null where none), for promotions
+     */
+    BitbaseGenerator(int type, short[][] solved, ForkJoinPool pool) {
+        this.type = type;
+        this.solved = solved;
+        this.pool = pool;
+    }
+
+    /** Plies to mate of every entry: the loser's for Black to move, UNRESOLVED for draws, ILLEGAL. */
+    short[] generate() {
+        Arrays.fill(dtm, UNRESOLVED);
+        pool.submit(() -> IntStream.range(0, Bitbases.ENTRIES).parallel().forEach(this::initialize)).join();
+        for (int[] moves : successors) {
+            if (moves != null) {
+                for (int code : moves) {
+                    externalHorizon = Math.max(externalHorizon, code <= -2 ? -2 - code : -1);
+                }
+            }
+        }
+        int idle = 0;
+        for (int d = 1; idle < 2 || d <= externalHorizon + 1; d++) {
+            int ply = d;
+            int side = d % 2 == 1 ? WHITE : BLACK;
+            int first = side * Bitbases.ENTRIES / 2;
+            long count = pool.submit(() -> IntStream.range(first, first + Bitbases.ENTRIES / 2).parallel()
+                .filter(i -> resolve(i, side, ply)).count()).join();
+            idle = count == 0 ? idle + 1 : 0;
+        }
+        return dtm;
+    }
+
+    private void initialize(int index) {
+        int side = Bitbases.side(index);
+        int strongKing = Bitbases.strongKing(index);
+        int weakKing = Bitbases.weakKing(index);
+        int piece = Bitbases.piece(index);
+        if (strongKing == weakKing || piece == strongKing || piece == weakKing
+            || (Bitboards.KING_ATTACKS[strongKing] & Bitboards.bit(weakKing)) != 0
+            || (type == PAWN && (piece < 8 || piece >= 56))) {
+            dtm[index] = ILLEGAL;
+            return;
+        }
+        BitboardPosition pos = BitboardPosition.of(side,
+            new int[] {pieceCode(WHITE, KING), pieceCode(BLACK, KING), pieceCode(WHITE, type)},
+            new int[] {strongKing, weakKing, piece});
+        if (pos.isInCheck(side ^ 1)) {
+            dtm[index] = ILLEGAL;
+            return;
+        }
+        MoveList moves = new MoveList();
+        int count = MoveGenerator.generateLegalMoves(pos, moves);
+        if (count == 0 && side == BLACK && pos.isInCheck(BLACK)) {
+            dtm[index] = 0;
+        }
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = successor(moves.get(i), side, strongKing, weakKing, piece);
+        }
+        successors[index] = codes;
+    }
+
+    private int successor(int move, int side, int strongKing, int weakKing, int piece) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (from == weakKing) {
+            return to == piece ? DRAW_SUCCESSOR : Bitbases.index(side ^ 1, strongKing, to, piece);
+        }
+        if (from == strongKing) {
+            return Bitbases.index(side ^ 1, to, weakKing, piece);
+        }
+        if (!Move.isPromotion(move)) {
+            return Bitbases.index(side ^ 1, strongKing, weakKing, to);
+        }
+        short[] table = solved[Move.promotion(move)];
+        int plies = table == null ? UNRESOLVED : table[Bitbases.index(side ^ 1, strongKing, weakKing, to)];
+        return plies >= 0 ? -2 - plies : DRAW_SUCCESSOR;
+    }
+
+    private boolean resolve(int index, int side, int ply) {
+        int[] moves = successors[index];
+        if (dtm[index] != UNRESOLVED || moves == null || moves.length == 0) {
+            return false;
+        }
+        int longest = -1;
+        for (int code : moves) {
+            int plies = code >= 0 ? dtm[code] : code <= -2 ? -2 - code : UNRESOLVED;
+            if (side == WHITE && plies == ply - 1) {
+                dtm[index] = (short) ply;
+                return true;
+            }
+            if (side == BLACK) {
+                if (plies < 0) {
+                    return false;
+                }
+                longest = Math.max(longest, plies);
+            }
+        }
+        if (side == BLACK && longest == ply - 1) {
+            dtm[index] = (short) ply;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,268 @@
+package bitbase;
+
+import static board.BitboardPosition.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import board.BitboardPosition;
+
+/**
+ * Endgame bitbases: distance to mate of every king-and-piece versus king position (KQK, KRK, KPK),
+ * generated in process by retrograde analysis (see BitbaseGenerator) and memory-mapped from a file.
+ * - An entry is indexed by side to move, stronger king, weaker king and piece square, with the stronger
+ *   side as White; positions where Black has the piece are probed with colors and ranks flipped.
+ * - Each table packs its entries into the fewest bits that hold its longest mate: 0 for a draw, otherwise
+ *   1 + plies to mate. KQK takes 5 bits per entry, KRK and KPK 6, about 1.1 MB together.
+ * - KK, KNK and KBK are known draws without a table. Positions with castling rights are not covered.
+ * The file is a header (magic, version, table count, then piece type and bit width per table) followed by
+ * the tables, little-endian, each padded by a long so any entry is read with one getLong. Probes only
+ * read the mapping, so one instance serves every thread; load returns the same instance for the same file.
+ * Usage: java bitbase.Bitbases file [--threads n] [fen ...]
+ * generates the file if it does not exist, then prints the result of each FEN.
+ */
+public final class Bitbases {
+    public static final int MAX_PIECES = 3;
+
+    // probeWdl results, for the side to move
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int UNKNOWN = 2;
+
+    static final int ENTRIES = 2 * 64 * 64 * 64;
+    // Tables in generation order: promotions need the queen and rook tables first
+    private static final int[] TYPES = {QUEEN, ROOK, PAWN};
+    private static final int MAGIC = 0x42544942; // "BITB"
+    private static final int VERSION = 1;
+    private static final int PADDING = Long.BYTES;
+
+    private static final Map<Path, Bitbases> OPEN = new HashMap<>();
+
+    private final MappedByteBuffer data;
+    // Byte offset and bits per entry of each table by piece type; offset -1 if the file has none
+    private final int[] offsets = {-1, -1, -1, -1, -1, -1};
+    private final int[] widths = new int[6];
+
+    private Bitbases(MappedByteBuffer data) {
+        this.data = data;
+        int count = data.getInt(8);
+        int offset = 12 + 8 * count;
+        for (int i = 0; i < count; i++) {
+            int type = data.getInt(12 + 8 * i);
+            int width = data.getInt(16 + 8 * i);
+            if (type < PAWN || type >= KING || width < 1 || width > 16) {
+                throw new IllegalArgumentException("Corrupt bitbase table header: type " + type + ", width " + width);
+            }
+            offsets[type] = offset;
+            widths[type] = width;
+            offset += tableBytes(width);
+        }
+        if (offset > data.capacity()) {
+            throw new IllegalArgumentException("Truncated bitbase file: " + data.capacity() + " bytes, expected " + offset);
+        }
+    }
+
+    /** Maps a bitbase file; throws IllegalArgumentException if it is not one. */
+    public static synchronized Bitbases load(Path file) throws IOException {
+        Path id = file.toAbsolutePath().normalize();
+        Bitbases bitbases = OPEN.get(id);
+        if (bitbases == null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                data.order(ByteOrder.LITTLE_ENDIAN);
+                if (data.capacity() < 12 || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                    throw new IllegalArgumentException("Not a bitbase file (version " + VERSION + "): " + file);
+                }
+                bitbases = new Bitbases(data);
+            }
+            OPEN.put(id, bitbases);
+        }
+        return bitbases;
+    }
+
+    /** Maps a bitbase file, generating it first with all available cores if it does not exist. */
+    public static Bitbases loadOrGenerate(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            generate(file, Runtime.getRuntime().availableProcessors());
+        }
+        return load(file);
+    }
+
+    /**
+     * Generates every table with the given number of threads and writes them to file, replacing it.
+     * The file is written under a temporary name and moved into place, so readers never see part of it.
+     */
+    public static void generate(Path file, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        short[][] solved = new short[6][];
+        try {
+            for (int type : TYPES) {
+                solved[type] = new BitbaseGenerator(type, solved, pool).generate();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            ByteBuffer header = ByteBuffer.allocate(12 + 8 * TYPES.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(TYPES.length);
+            int[] widths = new int[TYPES.length];
+            for (int i = 0; i < TYPES.length; i++) {
+                int longest = 0;
+                for (short plies : solved[TYPES[i]]) {
+                    longest = Math.max(longest, plies);
+                }
+                widths[i] = 32 - Integer.numberOfLeadingZeros(longest + 1);
+                header.putInt(TYPES[i]).putInt(widths[i]);
+            }
+            out.write(header.array());
+            for (int i = 0; i < TYPES.length; i++) {
+                out.write(pack(solved[TYPES[i]], widths[i]));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Entries as 0 (draw or illegal) or 1 + plies to mate, width bits each from bit 0 of byte 0 upwards
+    private static byte[] pack(short[] dtm, int width) {
+        byte[] bytes = new byte[tableBytes(width)];
+        for (int i = 0; i < ENTRIES; i++) {
+            long value = dtm[i] >= 0 ? dtm[i] + 1 : 0;
+            long bit = (long) i * width;
+            for (int b = 0; b < width; b++, bit++) {
+                if ((value & (1L << b)) != 0) {
+                    bytes[(int) (bit >>> 3)] |= 1 << (bit & 7);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int tableBytes(int width) {
+        return (int) (((long) ENTRIES * width + 7) / 8) + PADDING;
+    }
+
+    /**
+     * Game-theoretic result for the side to move: WIN, DRAW or LOSS, ignoring the fifty-move rule, or
+     * UNKNOWN if the position is not covered.
+     */
+    public int probeWdl(BitboardPosition pos) {
+        int entry = lookup(pos);
+        if (entry < 0) {
+            return UNKNOWN;
+        }
+        return (entry >>> 1) == 0 ? DRAW : (entry & 1) != 0 ? WIN : LOSS;
+    }
+
+    /**
+     * Plies to mate of a won or lost position with best play (0 when the side to move is checkmated),
+     * or -1 if it is drawn or not covered.
+     */
+    public int probeDtm(BitboardPosition pos) {
+        int entry = lookup(pos);
+        return entry > 1 ? (entry >>> 1) - 1 : -1;
+    }
+
+    // Stored value (0 draw, 1 + plies to mate) times 2, plus 1 if the stronger side is to move; -1 if not covered
+    private int lookup(BitboardPosition pos) {
+        long all = pos.getAllOccupancy();
+        if (Long.bitCount(all) > MAX_PIECES || pos.getCastlingRights() != 0) {
+            return -1;
+        }
+        int strong = WHITE;
+        int type = KING;
+        int piece = NO_SQUARE;
+        for (int color = WHITE; color <= BLACK; color++) {
+            long others = pos.getOccupancy(color) & ~pos.getPieces(color, KING);
+            if (others != 0) {
+                strong = color;
+                piece = Long.numberOfTrailingZeros(others);
+                type = typeOf(pos.pieceAt(piece));
+            }
+        }
+        if (type == KING || type == KNIGHT || type == BISHOP) {
+            return 0;
+        }
+        int offset = offsets[type];
+        if (offset < 0) {
+            return -1;
+        }
+        // Black's piece: the mirror image across the middle rank, with colors swapped
+        int flip = strong == WHITE ? 0 : 56;
+        int side = pos.getSideToMove() ^ strong;
+        int index = index(side, pos.kingSquare(strong) ^ flip, pos.kingSquare(strong ^ 1) ^ flip, piece ^ flip);
+        int width = widths[type];
+        long bit = (long) index * width;
+        long word = data.getLong(offset + (int) (bit >>> 3));
+        int value = (int) (word >>> (bit & 7)) & ((1 << width) - 1);
+        return value << 1 | (side == WHITE ? 1 : 0);
+    }
+
+    static int index(int side, int strongKing, int weakKing, int piece) {
+        return ((side * 64 + strongKing) * 64 + weakKing) * 64 + piece;
+    }
+
+    static int side(int index) {
+        return index >>> 18;
+    }
+
+    static int strongKing(int index) {
+        return (index >>> 12) & 63;
+    }
+
+    static int weakKing(int index) {
+        return (index >>> 6) & 63;
+    }
+
+    static int piece(int index) {
+        return index & 63;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (file == null) {
+                file = Paths.get(args[i]);
+            } else {
+                fens.add(args[i]);
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: java bitbase.Bitbases file [--threads n] [fen ...]");
+            return;
+        }
+        if (!Files.exists(file)) {
+            long start = System.nanoTime();
+            generate(file, threads);
+            System.out.printf("generated %s (%d bytes) with %d threads in %.1f s%n", file, Files.size(file), threads,
+                (System.nanoTime() - start) / 1e9);
+        }
+        Bitbases bitbases = load(file);
+        for (String fen : fens) {
+            BitboardPosition pos = BitboardPosition.fromFen(fen);
+            int wdl = bitbases.probeWdl(pos);
+            int dtm = bitbases.probeDtm(pos);
+            System.out.println(fen + ": " + (wdl == UNKNOWN ? "not covered" : wdl == DRAW ? "draw"
+                : (wdl == WIN ? "mates in " : "mated in ") + dtm + " plies"));
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package board;
+
+import java.util.Arrays;
+
+import game.GameState;
+import pieces.*;
+
+/**
+ * BitboardPosition is the compact position used by move generation and check detection.
+ * - One long per colored piece type (12 in total) plus per-color and total occupancy.
+ * - A small mailbox mirrors the bitboards for O(1) "what is on this square" lookups.
+ * - Tapered evaluation terms (PieceSquareTables sums and game phase) are kept up to date with every
+ *   piece put or removed, like the Zobrist key, so evaluating a position is a read.
+ * - Squares are indexed row * 8 + col, matching Position (index 0 = a8).
+ * It converts to and from ChessBoard, which stays the object model used by the GUI.
+ */
+public class BitboardPosition {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // Material values in centipawns, indexed by type
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    // Castling rights bits
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private final long[] pieces = new long[12];
+    private final long[] occupancy = new long[2];
+    private long allOccupancy;
+    private final int[] mailbox = new int[64];
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare;
+    private long zobristKey;
+    // Zobrist key of the pawns alone, for pawn hash tables
+    private long pawnKey;
+    // Middlegame and endgame piece-square sums (material included, White's view) and game phase
+    private int midgame;
+    private int endgame;
+    private int phase;
+
+    // Undo stack for makeMove/unmakeMove: packed captured piece, castling rights and en passant square,
+    // plus the key before the move
+    private long[] undoStack = new long[64];
+    private long[] keyStack = new long[64];
+    private int ply;
+
+    // Castling rights that survive a move touching each square (king and rook home squares clear rights)
+    static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE); // e1
+        CASTLING_MASK[63] &= ~WHITE_KINGSIDE;                     // h1
+        CASTLING_MASK[56] &= ~WHITE_QUEENSIDE;                    // a1
+        CASTLING_MASK[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);  // e8
+        CASTLING_MASK[7] &= ~BLACK_KINGSIDE;                      // h8
+        CASTLING_MASK[0] &= ~BLACK_QUEENSIDE;                     // a8
+    }
+
+    public BitboardPosition() {
+        Arrays.fill(mailbox, NO_PIECE);
+        this.sideToMove = WHITE;
+        this.castlingRights = 0;
+        this.epSquare = NO_SQUARE;
+    }
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Parses the first four FEN fields (placement, side, castling, en passant); clocks are ignored.
+     * Throws IllegalArgumentException on malformed input.
+     */
+    public static BitboardPosition fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        BitboardPosition pos = new BitboardPosition();
+        int sq = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                continue;
+            }
+            if (Character.isDigit(c)) {
+                sq += c - '0';
+                continue;
+            }
+            int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+            if (type < 0 || sq >= 64) {
+                throw new IllegalArgumentException("Invalid FEN placement: " + fields[0]);
+            }
+            pos.putPiece(pieceCode(Character.isUpperCase(c) ? WHITE : BLACK, type), sq++);
+        }
+        if (sq != 64) {
+            throw new IllegalArgumentException("Invalid FEN placement: " + fields[0]);
+        }
+        int rights = 0;
+        if (fields.length > 2) {
+            for (char c : fields[2].toCharArray()) {
+                int i = "KQkq".indexOf(c);
+                if (i >= 0) {
+                    rights |= 1 << i;
+                }
+            }
+        }
+        int ep = NO_SQUARE;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            if (!fields[3].matches("[a-h][36]")) {
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            }
+            ep = (8 - (fields[3].charAt(1) - '0')) * 8 + (fields[3].charAt(0) - 'a');
+        }
+        pos.setState(fields[1].equals("b") ? BLACK : WHITE, rights, ep);
+        return pos;
+    }
+
+    /**
+     * A position holding the given pieces (piece codes and squares in the same order), with no castling
+     * rights and no en passant square; used to enumerate positions rather than to play them.
+     */
+    public static BitboardPosition of(int sideToMove, int[] pieces, int[] squares) {
+        BitboardPosition pos = new BitboardPosition();
+        for (int i = 0; i < pieces.length; i++) {
+            pos.putPiece(pieces[i], squares[i]);
+        }
+        pos.setState(sideToMove, 0, NO_SQUARE);
+        return pos;
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = mailbox[row * 8 + col];
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = "pnbrqk".charAt(typeOf(piece));
+                sb.append(colorOf(piece) == WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) sb.append(empty);
+            if (row < 7) sb.append('/');
+        }
+        sb.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            sb.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & (1 << i)) != 0) sb.append("KQkq".charAt(i));
+        }
+        sb.append(' ').append(epSquare == NO_SQUARE ? "-" : Move.squareName(epSquare));
+        return sb.append(" 0 1").toString();
+    }
+
+    /** Independent copy (the undo history is not copied). */
+    public BitboardPosition copy() {
+        BitboardPosition res = new BitboardPosition();
+        System.arraycopy(this.pieces, 0, res.pieces, 0, 12);
+        System.arraycopy(this.occupancy, 0, res.occupancy, 0, 2);
+        System.arraycopy(this.mailbox, 0, res.mailbox, 0, 64);
+        res.allOccupancy = this.allOccupancy;
+        res.sideToMove = this.sideToMove;
+        res.castlingRights = this.castlingRights;
+        res.epSquare = this.epSquare;
+        res.zobristKey = this.zobristKey;
+        res.pawnKey = this.pawnKey;
+        res.midgame = this.midgame;
+        res.endgame = this.endgame;
+        res.phase = this.phase;
+        return res;
+    }
+
+    /** Piece code for a color and type: white pieces are 0..5, black pieces 6..11. */
+    public static int pieceCode(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece / 6;
+    }
+
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    public static int colorOf(PieceColor color) {
+        return color == PieceColor.WHITE ? WHITE : BLACK;
+    }
+
+    public static PieceColor pieceColor(int color) {
+        return color == WHITE ? PieceColor.WHITE : PieceColor.BLACK;
+    }
+
+    public static int typeOf(Piece piece) {
+        if (piece instanceof Pawn) return PAWN;
+        if (piece instanceof Knight) return KNIGHT;
+        if (piece instanceof Bishop) return BISHOP;
+        if (piece instanceof Rook) return ROOK;
+        if (piece instanceof Queen) return QUEEN;
+        return KING;
+    }
+
+    /**
+     * Builds a position from the GUI board. Castling rights come from the kings' and rooks'
+     * hasMoved flags, and the en passant square from the state's last move (if it was a double push).
+     */
+    public static BitboardPosition from(ChessBoard board, PieceColor sideToMove, GameState state) {
+        BitboardPosition pos = new BitboardPosition();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                Piece piece = board.getSquare(row, col).getPiece();
+                if (piece != null) {
+                    pos.putPiece(pieceCode(colorOf(piece.getColor()), typeOf(piece)), row * 8 + col);
+                }
+            }
+        }
+        int ep = NO_SQUARE;
+        if (state != null) {
+            Position from = state.getLastMoveFrom();
+            Position to = state.getLastMoveTo();
+            if (from != null && to != null
+                && board.getPiece(to) instanceof Pawn
+                && Math.abs(from.getRow() - to.getRow()) == 2) {
+                ep = ((from.getRow() + to.getRow()) / 2) * 8 + to.getCol();
+            }
+        }
+        pos.setState(colorOf(sideToMove), board.getCastlingRights(), ep);
+        return pos;
+    }
+
+    /**
+     * Sets the side to move, castling rights and en passant square of a position whose pieces have
+     * just been placed, hashing them into the key. Call once, before any move is made.
+     */
+    void setState(int sideToMove, int castlingRights, int epSquare) {
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.epSquare = epSquare;
+        this.zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(hashedEpFile());
+        if (sideToMove == BLACK) {
+            this.zobristKey ^= Zobrist.BLACK_TO_MOVE;
+        }
+    }
+
+    private int hashedEpFile() {
+        return hashedEpFile(epSquare, sideToMove, pieces[pieceCode(sideToMove, PAWN)]);
+    }
+
+    /**
+     * File of the en passant square if a pawn of the side to move (given its pawns) could capture there, else -1.
+     */
+    static int hashedEpFile(int epSquare, int sideToMove, long pawns) {
+        if (epSquare == NO_SQUARE || (Bitboards.PAWN_ATTACKS[sideToMove ^ 1][epSquare] & pawns) == 0) {
+            return -1;
+        }
+        return epSquare & 7;
+    }
+
+    /**
+     * Plays a legal move (see Move) in place, updating bitboards, rights and the Zobrist key.
+     * The previous state is pushed on an internal stack so unmakeMove can restore it.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = mailbox[from];
+        int us = sideToMove;
+
+        if (ply == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyStack = Arrays.copyOf(keyStack, ply * 2);
+        }
+        int capturedSq = Move.isEnPassant(move) ? to + (us == WHITE ? 8 : -8) : to;
+        int captured = mailbox[capturedSq];
+        undoStack[ply] = (captured + 1) | (castlingRights << 4) | ((long) (epSquare + 1) << 8);
+        keyStack[ply] = zobristKey;
+        ply++;
+
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(hashedEpFile());
+        if (captured != NO_PIECE) {
+            removePiece(capturedSq);
+        }
+        removePiece(from);
+        putPiece(Move.isPromotion(move) ? pieceCode(us, Move.promotion(move)) : piece, to);
+        if (Move.isCastle(move)) {
+            int base = to & ~7;
+            boolean kingside = (to & 7) == 6;
+            int rookFrom = kingside ? base + 7 : base;
+            int rookTo = kingside ? base + 5 : base + 3;
+            removePiece(rookFrom);
+            putPiece(pieceCode(us, ROOK), rookTo);
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        epSquare = Move.isDoublePush(move) ? (from + to) / 2 : NO_SQUARE;
+        sideToMove = us ^ 1;
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(hashedEpFile()) ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    /** Takes back the last move played with makeMove; the move must be passed back unchanged. */
+    public void unmakeMove(int move) {
+        ply--;
+        long undo = undoStack[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = sideToMove ^ 1;
+
+        int moved = Move.isPromotion(move) ? pieceCode(us, PAWN) : mailbox[to];
+        removePiece(to);
+        putPiece(moved, from);
+        if (Move.isCastle(move)) {
+            int base = to & ~7;
+            boolean kingside = (to & 7) == 6;
+            removePiece(kingside ? base + 5 : base + 3);
+            putPiece(pieceCode(us, ROOK), kingside ? base + 7 : base);
+        }
+        int captured = (int) (undo & 0xF) - 1;
+        if (captured != NO_PIECE) {
+            putPiece(captured, Move.isEnPassant(move) ? to + (us == WHITE ? 8 : -8) : to);
+        }
+        castlingRights = (int) ((undo >>> 4) & 0xF);
+        epSquare = (int) ((undo >>> 8) & 0x7F) - 1;
+        sideToMove = us;
+        zobristKey = keyStack[ply];
+    }
+
+    /**
+     * Converts back to a ChessBoard. hasMoved flags are reconstructed: kings and rooks keep
+     * "unmoved" only while they still carry a castling right, pawns while on their start row.
+     */
+    public ChessBoard toChessBoard() {
+        ChessBoard board = ChessBoard.empty();
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = mailbox[sq];
+            if (piece == NO_PIECE) {
+                continue;
+            }
+            Position p = Bitboards.position(sq);
+            Piece obj = createPiece(piece, p);
+            obj.setHasMoved(!isUnmovedSquare(piece, sq));
+            board.placePiece(obj, p.getRow(), p.getCol());
+        }
+        return board;
+    }
+
+    private boolean isUnmovedSquare(int piece, int sq) {
+        int color = colorOf(piece);
+        int homeRow = color == WHITE ? 7 : 0;
+        switch (typeOf(piece)) {
+            case PAWN:
+                return (sq >>> 3) == (color == WHITE ? 6 : 1);
+            case KING:
+                return sq == homeRow * 8 + 4
+                    && (castlingRights & (color == WHITE ? WHITE_KINGSIDE | WHITE_QUEENSIDE : BLACK_KINGSIDE | BLACK_QUEENSIDE)) != 0;
+            case ROOK:
+                if (sq == homeRow * 8 + 7) return (castlingRights & (color == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE)) != 0;
+                if (sq == homeRow * 8) return (castlingRights & (color == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE)) != 0;
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    public static Piece createPiece(int piece, Position pos) {
+        PieceColor color = pieceColor(colorOf(piece));
+        switch (typeOf(piece)) {
+            case PAWN: return new Pawn(color, pos);
+            case KNIGHT: return new Knight(color, pos);
+            case BISHOP: return new Bishop(color, pos);
+            case ROOK: return new Rook(color, pos);
+            case QUEEN: return new Queen(color, pos);
+            default: return new King(color, pos);
+        }
+    }
+
+    public void putPiece(int piece, int square) {
+        long b = Bitboards.bit(square);
+        pieces[piece] |= b;
+        occupancy[colorOf(piece)] |= b;
+        allOccupancy |= b;
+        mailbox[square] = piece;
+        zobristKey ^= Zobrist.piece(piece, square);
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        midgame += PieceSquareTables.midgame(piece, square);
+        endgame += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+    }
+
+    public void removePiece(int square) {
+        int piece = mailbox[square];
+        if (piece == NO_PIECE) {
+            return;
+        }
+        long b = ~Bitboards.bit(square);
+        pieces[piece] &= b;
+        occupancy[colorOf(piece)] &= b;
+        allOccupancy &= b;
+        mailbox[square] = NO_PIECE;
+        zobristKey ^= Zobrist.piece(piece, square);
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        midgame -= PieceSquareTables.midgame(piece, square);
+        endgame -= PieceSquareTables.endgame(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+    }
+
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long getPieces(int color, int type) {
+        return pieces[pieceCode(color, type)];
+    }
+
+    public long getOccupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long getAllOccupancy() {
+        return allOccupancy;
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEpSquare() {
+        return epSquare;
+    }
+
+    /** Zobrist key of the whole position: placement, castling, en passant file and side to move. */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /** Zobrist key of the pawns alone: the XOR of their piece-square keys. */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /** Middlegame piece-square sum including material, White's point of view. */
+    public int getMidgameScore() {
+        return midgame;
+    }
+
+    /** Endgame piece-square sum including material, White's point of view. */
+    public int getEndgameScore() {
+        return endgame;
+    }
+
+    /** Non-pawn material phase: PieceSquareTables.MAX_PHASE at the start, 0 with only kings and pawns. */
+    public int getPhase() {
+        return phase;
+    }
+
+    public int kingSquare(int color) {
+        long king = pieces[pieceCode(color, KING)];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Squares attacked (not necessarily movable to) by the piece on the given square.
+     */
+    public long attacksFrom(int square) {
+        int piece = mailbox[square];
+        if (piece == NO_PIECE) {
+            return 0L;
+        }
+        switch (typeOf(piece)) {
+            case PAWN: return Bitboards.PAWN_ATTACKS[colorOf(piece)][square];
+            case KNIGHT: return Bitboards.KNIGHT_ATTACKS[square];
+            case BISHOP: return Bitboards.bishopAttacks(square, allOccupancy);
+            case ROOK: return Bitboards.rookAttacks(square, allOccupancy);
+            case QUEEN: return Bitboards.queenAttacks(square, allOccupancy);
+            default: return Bitboards.KING_ATTACKS[square];
+        }
+    }
+
+    /**
+     * Pieces of both colors attacking the square, given an occupancy (which may differ from the
+     * board, e.g. with the king lifted off so sliders see through it).
+     */
+    public long attackersTo(int square, long occupied) {
+        return (Bitboards.PAWN_ATTACKS[WHITE][square] & pieces[pieceCode(BLACK, PAWN)])
+            | (Bitboards.PAWN_ATTACKS[BLACK][square] & pieces[pieceCode(WHITE, PAWN)])
+            | (Bitboards.KNIGHT_ATTACKS[square] & (pieces[pieceCode(WHITE, KNIGHT)] | pieces[pieceCode(BLACK, KNIGHT)]))
+            | (Bitboards.KING_ATTACKS[square] & (pieces[pieceCode(WHITE, KING)] | pieces[pieceCode(BLACK, KING)]))
+            | (Bitboards.bishopAttacks(square, occupied) & (pieces[pieceCode(WHITE, BISHOP)] | pieces[pieceCode(BLACK, BISHOP)]
+                | pieces[pieceCode(WHITE, QUEEN)] | pieces[pieceCode(BLACK, QUEEN)]))
+            | (Bitboards.rookAttacks(square, occupied) & (pieces[pieceCode(WHITE, ROOK)] | pieces[pieceCode(BLACK, ROOK)]
+                | pieces[pieceCode(WHITE, QUEEN)] | pieces[pieceCode(BLACK, QUEEN)]));
+    }
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        return isSquareAttacked(square, byColor, allOccupancy);
+    }
+
+    /**
+     * True if any piece of byColor attacks the square. Looks outward from the square:
+     * knight, king and pawn patterns first, then the first blocker on each slider ray,
+     * returning as soon as one attacker is found.
+     */
+    public boolean isSquareAttacked(int square, int byColor, long occupied) {
+        if ((Bitboards.KNIGHT_ATTACKS[square] & pieces[pieceCode(byColor, KNIGHT)]) != 0) return true;
+        // A pawn of byColor attacks the square if it stands where a pawn of the other color would attack from it
+        if ((Bitboards.PAWN_ATTACKS[byColor ^ 1][square] & pieces[pieceCode(byColor, PAWN)]) != 0) return true;
+        if ((Bitboards.KING_ATTACKS[square] & pieces[pieceCode(byColor, KING)]) != 0) return true;
+        long queens = pieces[pieceCode(byColor, QUEEN)];
+        long diagonal = pieces[pieceCode(byColor, BISHOP)] | queens;
+        if (diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0) return true;
+        long straight = pieces[pieceCode(byColor, ROOK)] | queens;
+        return straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0;
+    }
+
+    public boolean isInCheck(int color) {
+        int king = kingSquare(color);
+        return king != NO_SQUARE && isSquareAttacked(king, color ^ 1);
+    }
+}
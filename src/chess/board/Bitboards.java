@@ -0,0 +1,220 @@
+package board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitboards holds the precomputed attack tables used by BitboardPosition.
+ * Square indices follow the board's row/col layout: square = row * 8 + col,
+ * so index 0 is a8 and index 63 is h1.
+ * Sliding attacks use "fancy" magic bitboards: the relevant blockers of a square
+ * are multiplied by a magic number and shifted into a dense per-square table.
+ * The magic numbers were found offline with a seeded random search; filling the tables
+ * at class load verifies that every magic maps its blocker sets without destructive collisions.
+ */
+public final class Bitboards {
+    private Bitboards() {}
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    // Indexed by color (0 = white, 1 = black) then square
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+    // Squares strictly between two aligned squares, and the full line through them (0 if not aligned)
+    public static final long[][] BETWEEN = new long[64][64];
+    public static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+        0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+        0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+        0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+        0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+        0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+        0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+        0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+        0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+        0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+        0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+        0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+        0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+        0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+        0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+        0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+        0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+        0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+        0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+        0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+        0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+        0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+        0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+        0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+        0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+        0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+        0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+        0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+        0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+        0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+        0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+        0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+        0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        int[][] knightDeltas = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        int[][] kingDeltas = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >>> 3;
+            int col = sq & 7;
+            KNIGHT_ATTACKS[sq] = offsets(row, col, knightDeltas);
+            KING_ATTACKS[sq] = offsets(row, col, kingDeltas);
+            // White pawns move towards row 0, black pawns towards row 7
+            PAWN_ATTACKS[0][sq] = offsets(row, col, new int[][] {{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[1][sq] = offsets(row, col, new int[][] {{1, -1}, {1, 1}});
+        }
+
+        ROOK_TABLE = new long[initMasks(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS)];
+        BISHOP_TABLE = new long[initMasks(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS)];
+        for (int sq = 0; sq < 64; sq++) {
+            fillTable(sq, ROOK_DIRECTIONS, ROOK_MASKS[sq], ROOK_MAGICS[sq], ROOK_SHIFTS[sq], ROOK_TABLE, ROOK_OFFSETS[sq]);
+            fillTable(sq, BISHOP_DIRECTIONS, BISHOP_MASKS[sq], BISHOP_MAGICS[sq], BISHOP_SHIFTS[sq], BISHOP_TABLE, BISHOP_OFFSETS[sq]);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long ab = bit(a) | bit(b);
+                if ((rookAttacks(a, 0L) & bit(b)) != 0) {
+                    BETWEEN[a][b] = rookAttacks(a, ab) & rookAttacks(b, ab);
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ab;
+                } else if ((bishopAttacks(a, 0L) & bit(b)) != 0) {
+                    BETWEEN[a][b] = bishopAttacks(a, ab) & bishopAttacks(b, ab);
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ab;
+                }
+            }
+        }
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static int square(Position pos) {
+        return pos.getRow() * 8 + pos.getCol();
+    }
+
+    public static Position position(int square) {
+        return new Position(square >>> 3, square & 7);
+    }
+
+    /** Expands a bitboard into positions, in square order. */
+    public static List<Position> positions(long bb) {
+        List<Position> res = new ArrayList<>(Long.bitCount(bb));
+        while (bb != 0) {
+            res.add(position(Long.numberOfTrailingZeros(bb)));
+            bb &= bb - 1;
+        }
+        return res;
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static long offsets(int row, int col, int[][] deltas) {
+        long res = 0L;
+        for (int[] d : deltas) {
+            int r = row + d[0];
+            int c = col + d[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                res |= bit(r * 8 + c);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Walks each ray until (and including) the first blocker. Only used to build the tables.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long res = 0L;
+        for (int[] d : directions) {
+            int r = (square >>> 3) + d[0];
+            int c = (square & 7) + d[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long b = bit(r * 8 + c);
+                res |= b;
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Fills masks/shifts/offsets and returns the total table size.
+     * The relevant mask excludes the last square of each ray, since a blocker there changes nothing.
+     */
+    private static int initMasks(int[][] directions, long[] masks, int[] shifts, int[] offsets) {
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = 0L;
+            for (int[] d : directions) {
+                int r = (sq >>> 3) + d[0];
+                int c = (sq & 7) + d[1];
+                while (r + d[0] >= 0 && r + d[0] < 8 && c + d[1] >= 0 && c + d[1] < 8) {
+                    mask |= bit(r * 8 + c);
+                    r += d[0];
+                    c += d[1];
+                }
+            }
+            masks[sq] = mask;
+            shifts[sq] = 64 - Long.bitCount(mask);
+            offsets[sq] = total;
+            total += 1 << Long.bitCount(mask);
+        }
+        return total;
+    }
+
+    private static void fillTable(int square, int[][] directions, long mask, long magic, int shift, long[] table, int offset) {
+        boolean[] used = new boolean[1 << (64 - shift)];
+        // Enumerate every subset of the mask (carry-rippler)
+        long occ = 0L;
+        do {
+            int index = (int) ((occ * magic) >>> shift);
+            long attacks = slidingAttacks(square, occ, directions);
+            if (used[index] && table[offset + index] != attacks) {
+                throw new IllegalStateException("Bad magic for square " + square);
+            }
+            used[index] = true;
+            table[offset + index] = attacks;
+            occ = (occ - mask) & mask;
+        } while (occ != 0);
+    }
+}
@@ -9,8 +9,20 @@ public class ChessBoard {
     private Square[][] board;
     private Piece white_king;
     private Piece black_king;
+    // Zobrist key of piece placement and castling rights, maintained incrementally (see Zobrist)
+    private long zobristKey;
+    // The same keys for pawns only: the pawn structure, for pawn hash tables
+    private long pawnKey;
+    private int castlingRights;
+    // Piece counts by BitboardPosition piece code, and bishops by [color][square colour], kept in step by setSquare
+    private final int[] pieceCounts = new int[12];
+    private final int[][] bishopSquareColors = new int[2][2];
 
     public ChessBoard() {
+        this(true);
+    }
+
+    private ChessBoard(boolean setup) {
         this.board = new Square[8][8];
         for (int row = 0; row < 8; ++row) {
             for (int col = 0; col < 8; ++col) {
@@ -19,7 +31,17 @@ public class ChessBoard {
             }
         }
         // Setting up the pieces
-        setupInitialPieces();
+        if (setup) {
+            setupInitialPieces();
+        }
+        updateCastlingRights();
+    }
+
+    /**
+     * Creates a board with no pieces on it (used when building boards from other representations).
+     */
+    public static ChessBoard empty() {
+        return new ChessBoard(false);
     }
 
     private void setupInitialPieces() {
@@ -73,15 +95,24 @@ public class ChessBoard {
         if (!isValidPosition(row, col)) {
             return;
         }
-        this.board[row][col].setPiece(piece);
+        setSquare(row, col, piece);
+        updateCastlingRights();
+        if (piece instanceof King) {
+            if (piece.getColor() == PieceColor.WHITE) {
+                this.white_king = piece;
+            } else {
+                this.black_king = piece;
+            }
+        }
     }
 
     public void movePiece(Position a, Position b) {
         Piece piece = this.board[a.getRow()][a.getCol()].getPiece();
         if (piece != null) {
-            this.board[a.getRow()][a.getCol()].clear();
+            setSquare(a.getRow(), a.getCol(), null);
             piece.setPosition(b); // Update piece position and set hasMoved
-            this.board[b.getRow()][b.getCol()].setPiece(piece);
+            setSquare(b.getRow(), b.getCol(), piece);
+            updateCastlingRights();
             // Update king references if a king was moved
             if (piece instanceof King) {
                 if (piece.getColor() == PieceColor.WHITE) {
@@ -123,7 +154,238 @@ public class ChessBoard {
         // Move the attacking pawn
         movePiece(pawnFrom, pawnTo);
         // Remove the captured pawn
-        this.board[capturedPawnPos.getRow()][capturedPawnPos.getCol()].clear();
+        setSquare(capturedPawnPos.getRow(), capturedPawnPos.getCol(), null);
+    }
+
+    /**
+     * Plays a move in place and returns the record needed to take it back with unmakeMove.
+     * Castling (king moving two columns), en passant (pawn moving diagonally onto an empty square)
+     * and promotion (pawn reaching the last row; null type means Queen) are detected from the board.
+     * The move is assumed to be pseudo-legal; no validation is done here.
+     */
+    public MoveUndo makeMove(Position from, Position to, Class<? extends Piece> promotionType) {
+        long previousKey = this.zobristKey;
+        long previousPawnKey = this.pawnKey;
+        int previousCastlingRights = this.castlingRights;
+        Piece moved = getPiece(from);
+        boolean movedHadMoved = moved.getHasMoved();
+        Piece captured = getPiece(to);
+        Position capturedAt = to;
+        Piece rook = null;
+        Position rookFrom = null;
+        Position rookTo = null;
+        boolean rookHadMoved = false;
+        Piece promotedTo = null;
+
+        if (moved instanceof King && Math.abs(to.getCol() - from.getCol()) == 2) {
+            boolean isKingside = to.getCol() > from.getCol();
+            rookFrom = new Position(from.getRow(), isKingside ? 7 : 0);
+            rookTo = new Position(from.getRow(), isKingside ? to.getCol() - 1 : to.getCol() + 1);
+            rook = getPiece(rookFrom);
+            rookHadMoved = rook.getHasMoved();
+            movePiece(rookFrom, rookTo);
+        } else if (moved instanceof Pawn && captured == null && from.getCol() != to.getCol()) {
+            // En passant: the captured pawn stands beside the moving pawn
+            capturedAt = new Position(from.getRow(), to.getCol());
+            captured = getPiece(capturedAt);
+            setSquare(capturedAt.getRow(), capturedAt.getCol(), null);
+        }
+
+        movePiece(from, to);
+
+        int promotionRow = moved.getColor() == PieceColor.WHITE ? 0 : 7;
+        if (moved instanceof Pawn && to.getRow() == promotionRow) {
+            promotedTo = createPromotionPiece(moved.getColor(), to, promotionType);
+            promotedTo.setHasMoved(true);
+            setSquare(to.getRow(), to.getCol(), promotedTo);
+        }
+
+        return new MoveUndo(moved, from, to, movedHadMoved, captured, capturedAt,
+            rook, rookFrom, rookTo, rookHadMoved, promotedTo, previousKey, previousPawnKey, previousCastlingRights);
+    }
+
+    /**
+     * Takes back a move played with makeMove, restoring pieces, positions and hasMoved flags.
+     * The Zobrist keys and castling rights are restored from the record rather than recomputed.
+     */
+    public void unmakeMove(MoveUndo undo) {
+        Position from = undo.from;
+        Position to = undo.to;
+        this.board[to.getRow()][to.getCol()].clear();
+        this.board[from.getRow()][from.getCol()].setPiece(undo.moved);
+        undo.moved.setPosition(from);
+        undo.moved.setHasMoved(undo.movedHadMoved);
+
+        if (undo.captured != null) {
+            this.board[undo.capturedAt.getRow()][undo.capturedAt.getCol()].setPiece(undo.captured);
+            countPiece(undo.captured, undo.capturedAt.getRow(), undo.capturedAt.getCol(), 1);
+        }
+        if (undo.promotedTo != null) {
+            countPiece(undo.promotedTo, to.getRow(), to.getCol(), -1);
+            countPiece(undo.moved, to.getRow(), to.getCol(), 1);
+        }
+        if (undo.rook != null) {
+            this.board[undo.rookTo.getRow()][undo.rookTo.getCol()].clear();
+            this.board[undo.rookFrom.getRow()][undo.rookFrom.getCol()].setPiece(undo.rook);
+            undo.rook.setPosition(undo.rookFrom);
+            undo.rook.setHasMoved(undo.rookHadMoved);
+        }
+        this.zobristKey = undo.previousKey;
+        this.pawnKey = undo.previousPawnKey;
+        this.castlingRights = undo.previousCastlingRights;
+    }
+
+    /**
+     * Takes back an int-encoded move (see Move) from compact data instead of a MoveUndo record:
+     * the captured piece code (BitboardPosition.NO_PIECE for none) and the hasMoved flags the
+     * captured and moving pieces had before the move. Captured and demoted pieces are recreated.
+     * Castling requires an unmoved rook, so its flag is implied. Key, castling rights and material
+     * counters are updated through the normal square writes.
+     */
+    public void unmakeMove(int move, int captured, boolean capturedHadMoved, boolean movedHadMoved) {
+        Position from = Bitboards.position(Move.from(move));
+        Position to = Bitboards.position(Move.to(move));
+        Piece moved = getPiece(to);
+        if (Move.isPromotion(move)) {
+            moved = new Pawn(moved.getColor(), to);
+        }
+        setSquare(to.getRow(), to.getCol(), null);
+        moved.setPosition(from);
+        moved.setHasMoved(movedHadMoved);
+        setSquare(from.getRow(), from.getCol(), moved);
+
+        if (captured != BitboardPosition.NO_PIECE) {
+            Position capturedAt = Move.isEnPassant(move) ? new Position(from.getRow(), to.getCol()) : to;
+            Piece piece = BitboardPosition.createPiece(captured, capturedAt);
+            piece.setHasMoved(capturedHadMoved);
+            setSquare(capturedAt.getRow(), capturedAt.getCol(), piece);
+        }
+        if (Move.isCastle(move)) {
+            boolean isKingside = to.getCol() > from.getCol();
+            Position rookTo = new Position(from.getRow(), isKingside ? to.getCol() - 1 : to.getCol() + 1);
+            Position rookFrom = new Position(from.getRow(), isKingside ? 7 : 0);
+            Piece rook = getPiece(rookTo);
+            setSquare(rookTo.getRow(), rookTo.getCol(), null);
+            rook.setPosition(rookFrom);
+            rook.setHasMoved(false);
+            setSquare(rookFrom.getRow(), rookFrom.getCol(), rook);
+        }
+        updateCastlingRights();
+    }
+
+    /**
+     * Zobrist key of the piece placement and castling rights. Side to move and the en passant file
+     * live in GameState; combine both with GameState.positionKey(board).
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    /** Zobrist key of the pawns alone (both colors); equal to BitboardPosition.getPawnKey for the same placement. */
+    public long getPawnKey() {
+        return this.pawnKey;
+    }
+
+    /**
+     * Castling rights as BitboardPosition.WHITE_KINGSIDE/... bits: a right is held while the king and
+     * that rook are on their home squares and have not moved.
+     */
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    /** Number of pieces of a color and BitboardPosition type (PAWN..KING) on the board. */
+    public int getPieceCount(PieceColor color, int type) {
+        return this.pieceCounts[BitboardPosition.pieceCode(BitboardPosition.colorOf(color), type)];
+    }
+
+    /** Material of one side in centipawns (see BitboardPosition.PIECE_VALUES), from the counters. */
+    public int getMaterial(PieceColor color) {
+        int base = BitboardPosition.pieceCode(BitboardPosition.colorOf(color), BitboardPosition.PAWN);
+        int res = 0;
+        for (int type = BitboardPosition.PAWN; type < BitboardPosition.KING; type++) {
+            res += this.pieceCounts[base + type] * BitboardPosition.PIECE_VALUES[type];
+        }
+        return res;
+    }
+
+    /**
+     * True if neither side can ever checkmate: no pawns, rooks or queens, and either at most one
+     * minor piece in total or only bishops that all stand on the same square colour.
+     */
+    public boolean isInsufficientMaterial() {
+        int knights = 0;
+        for (int color = BitboardPosition.WHITE; color <= BitboardPosition.BLACK; color++) {
+            int base = BitboardPosition.pieceCode(color, BitboardPosition.PAWN);
+            if (this.pieceCounts[base + BitboardPosition.PAWN] + this.pieceCounts[base + BitboardPosition.ROOK]
+                + this.pieceCounts[base + BitboardPosition.QUEEN] != 0) {
+                return false;
+            }
+            knights += this.pieceCounts[base + BitboardPosition.KNIGHT];
+        }
+        int light = this.bishopSquareColors[0][0] + this.bishopSquareColors[1][0];
+        int dark = this.bishopSquareColors[0][1] + this.bishopSquareColors[1][1];
+        if (knights + light + dark <= 1) {
+            return true;
+        }
+        return knights == 0 && (light == 0 || dark == 0);
+    }
+
+    /**
+     * Puts a piece (or null) on a square, XORing the old and new occupant in and out of the keys
+     * and updating the material counters.
+     */
+    private void setSquare(int row, int col, Piece piece) {
+        Square square = this.board[row][col];
+        Piece old = square.getPiece();
+        if (old != null) {
+            this.zobristKey ^= Zobrist.piece(old, row, col);
+            if (old instanceof Pawn) {
+                this.pawnKey ^= Zobrist.piece(old, row, col);
+            }
+            countPiece(old, row, col, -1);
+        }
+        if (piece != null) {
+            this.zobristKey ^= Zobrist.piece(piece, row, col);
+            if (piece instanceof Pawn) {
+                this.pawnKey ^= Zobrist.piece(piece, row, col);
+            }
+            countPiece(piece, row, col, 1);
+            square.setPiece(piece);
+        } else {
+            square.clear();
+        }
+    }
+
+    private void countPiece(Piece piece, int row, int col, int delta) {
+        int color = BitboardPosition.colorOf(piece.getColor());
+        int type = BitboardPosition.typeOf(piece);
+        this.pieceCounts[BitboardPosition.pieceCode(color, type)] += delta;
+        if (type == BitboardPosition.BISHOP) {
+            // Square colour 0 is light (a8 is light), 1 is dark
+            this.bishopSquareColors[color][(row + col) & 1] += delta;
+        }
+    }
+
+    private void updateCastlingRights() {
+        int rights = 0;
+        if (isUnmoved(7, 4, King.class, PieceColor.WHITE)) {
+            if (isUnmoved(7, 7, Rook.class, PieceColor.WHITE)) rights |= BitboardPosition.WHITE_KINGSIDE;
+            if (isUnmoved(7, 0, Rook.class, PieceColor.WHITE)) rights |= BitboardPosition.WHITE_QUEENSIDE;
+        }
+        if (isUnmoved(0, 4, King.class, PieceColor.BLACK)) {
+            if (isUnmoved(0, 7, Rook.class, PieceColor.BLACK)) rights |= BitboardPosition.BLACK_KINGSIDE;
+            if (isUnmoved(0, 0, Rook.class, PieceColor.BLACK)) rights |= BitboardPosition.BLACK_QUEENSIDE;
+        }
+        if (rights != this.castlingRights) {
+            this.zobristKey ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(rights);
+            this.castlingRights = rights;
+        }
+    }
+
+    private boolean isUnmoved(int row, int col, Class<? extends Piece> type, PieceColor color) {
+        Piece piece = this.board[row][col].getPiece();
+        return piece != null && piece.getClass() == type && piece.getColor() == color && !piece.getHasMoved();
     }
 
     public List<Piece> getAllPieces(PieceColor color) {
@@ -139,33 +401,67 @@ public class ChessBoard {
         return res;
     }
 
+    private static final int[][] KNIGHT_OFFSETS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_OFFSETS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    /**
+     * True if any piece of byColor attacks the square. Looks outward from the square instead of
+     * generating the attackers' moves: knight and king offsets, the two pawn diagonals, then the
+     * first blocker on each of the eight rays. Allocates nothing.
+     */
+    public boolean isSquareAttacked(Position square, PieceColor byColor) {
+        int row = square.getRow();
+        int col = square.getCol();
+        for (int[] d : KNIGHT_OFFSETS) {
+            Piece p = pieceAt(row + d[0], col + d[1]);
+            if (p instanceof Knight && p.getColor() == byColor) return true;
+        }
+        for (int[] d : KING_OFFSETS) {
+            Piece p = pieceAt(row + d[0], col + d[1]);
+            if (p instanceof King && p.getColor() == byColor) return true;
+        }
+        // White pawns attack towards row 0, so they sit one row below (higher index) the square
+        int pawnRow = byColor == PieceColor.WHITE ? row + 1 : row - 1;
+        for (int dc = -1; dc <= 1; dc += 2) {
+            Piece p = pieceAt(pawnRow, col + dc);
+            if (p instanceof Pawn && p.getColor() == byColor) return true;
+        }
+        for (int[] d : KING_OFFSETS) {
+            boolean diagonal = d[0] != 0 && d[1] != 0;
+            int r = row + d[0];
+            int c = col + d[1];
+            while (isValidPosition(r, c)) {
+                Piece p = this.board[r][c].getPiece();
+                if (p != null) {
+                    if (p.getColor() == byColor
+                        && (p instanceof Queen || (diagonal ? p instanceof Bishop : p instanceof Rook))) {
+                        return true;
+                    }
+                    break; // first blocker ends the ray
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return false;
+    }
+
+    private Piece pieceAt(int row, int col) {
+        return isValidPosition(row, col) ? this.board[row][col].getPiece() : null;
+    }
+
     public Piece getKing(PieceColor color) {
         return color == PieceColor.WHITE ? this.white_king : this.black_king;
     }
 
     public ChessBoard copy() {
-        ChessBoard res = new ChessBoard();
-        // Clear the initial setup since we're copying
-        for (int row = 0; row < 8; ++row) {
-            for (int col = 0; col < 8; ++col) {
-                res.board[row][col].clear();
-            }
-        }
-        // Copy all pieces
+        ChessBoard res = new ChessBoard(false);
+        // Copy all pieces (placePiece keeps the king references in sync)
         for (int row = 0; row < 8; ++row) {
             for (int col = 0; col < 8; ++col) {
                 Piece piece = this.board[row][col].getPiece();
                 if (piece != null) {
-                    Piece copiedPiece = piece.copy();
-                    res.placePiece(copiedPiece, row, col);
-                    // Update king references in copied board
-                    if (copiedPiece instanceof King) {
-                        if (copiedPiece.getColor() == PieceColor.WHITE) {
-                            res.white_king = copiedPiece;
-                        } else {
-                            res.black_king = copiedPiece;
-                        }
-                    }
+                    res.placePiece(piece.copy(), row, col);
                 }
             }
         }
@@ -181,34 +477,22 @@ public class ChessBoard {
             return;
         }
 
-        try {
-            // Create new piece of the specified type
-            Piece newPiece = null;
-            PieceColor color = pawn.getColor();
-            
-            if (pieceType == Queen.class) {
-                newPiece = new Queen(color, pawnPos);
-            } else if (pieceType == Rook.class) {
-                newPiece = new Rook(color, pawnPos);
-            } else if (pieceType == Bishop.class) {
-                newPiece = new Bishop(color, pawnPos);
-            } else if (pieceType == Knight.class) {
-                newPiece = new Knight(color, pawnPos);
-            } else {
-                // Default to Queen if invalid piece type
-                newPiece = new Queen(color, pawnPos);
-            }
-            
-            // Replace the pawn with the new piece
-            newPiece.setHasMoved(true); // Mark as moved since it's a promotion
-            this.board[pawnPos.getRow()][pawnPos.getCol()].setPiece(newPiece);
-            
-        } catch (Exception e) {
-            // If anything goes wrong, default to Queen
-            Queen queen = new Queen(pawn.getColor(), pawnPos);
-            queen.setHasMoved(true);
-            this.board[pawnPos.getRow()][pawnPos.getCol()].setPiece(queen);
+        // Replace the pawn with the new piece
+        Piece newPiece = createPromotionPiece(pawn.getColor(), pawnPos, pieceType);
+        newPiece.setHasMoved(true); // Mark as moved since it's a promotion
+        setSquare(pawnPos.getRow(), pawnPos.getCol(), newPiece);
+    }
+
+    private static Piece createPromotionPiece(PieceColor color, Position pos, Class<? extends Piece> pieceType) {
+        if (pieceType == Rook.class) {
+            return new Rook(color, pos);
+        } else if (pieceType == Bishop.class) {
+            return new Bishop(color, pos);
+        } else if (pieceType == Knight.class) {
+            return new Knight(color, pos);
         }
+        // Default to Queen for Queen.class, null or any invalid piece type
+        return new Queen(color, pos);
     }
 
     public boolean isValidPosition(int row, int col) {
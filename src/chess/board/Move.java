@@ -0,0 +1,96 @@
+package board;
+
+import pieces.*;
+
+/**
+ * Move packs a move into a single int so generators can fill primitive buffers (see MoveList):
+ * - bits 0-5: from square, bits 6-11: to square (square = row * 8 + col);
+ * - bits 12-14: promotion piece type (BitboardPosition.KNIGHT..QUEEN), 0 when not a promotion;
+ * - bits 15-18: CAPTURE, EN_PASSANT, CASTLE and DOUBLE_PUSH flags.
+ * NONE (0) is never a real move because from and to would be equal.
+ */
+public final class Move {
+    private Move() {}
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | flags;
+    }
+
+    public static int of(int from, int to, int flags, int promotionType) {
+        return from | (to << 6) | (promotionType << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /** Promotion piece type, or 0 (never a valid promotion type) when the move does not promote. */
+    public static int promotion(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /** Maps a promotion class from the GUI to a piece type; null or unknown classes mean Queen. */
+    public static int promotionType(Class<? extends Piece> type) {
+        if (type == Rook.class) return BitboardPosition.ROOK;
+        if (type == Bishop.class) return BitboardPosition.BISHOP;
+        if (type == Knight.class) return BitboardPosition.KNIGHT;
+        return BitboardPosition.QUEEN;
+    }
+
+    public static Class<? extends Piece> promotionClass(int move) {
+        switch (promotion(move)) {
+            case BitboardPosition.ROOK: return Rook.class;
+            case BitboardPosition.BISHOP: return Bishop.class;
+            case BitboardPosition.KNIGHT: return Knight.class;
+            case BitboardPosition.QUEEN: return Queen.class;
+            default: return null;
+        }
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (8 - (square >>> 3));
+    }
+
+    /** Coordinate notation, e.g. "e2e4" or "e7e8q". */
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String s = squareName(from(move)) + squareName(to(move));
+        if (isPromotion(move)) {
+            s += "nbrq".charAt(promotion(move) - BitboardPosition.KNIGHT);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,212 @@
+package board;
+
+import static board.BitboardPosition.*;
+
+import java.util.Arrays;
+
+/**
+ * MoveGenerator produces the legal moves of the side to move in a single pass.
+ * Checkers and pinned pieces are computed once per position, then:
+ * - in double check only king moves are generated;
+ * - in single check every other move is restricted to the check mask (capture the checker or block);
+ * - pinned pieces are restricted to the line through their king and pinner;
+ * - king moves are tested with the king lifted off the board, so sliders see through it;
+ * - en passant is verified by removing both pawns, which covers the discovered check along the rank.
+ * No move is ever played to test legality. Moves are written into a caller-owned MoveList.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {}
+
+    /**
+     * Clears the list and fills it with the legal moves of the side to move (see Move for the encoding).
+     * Promotions are emitted once per promotion piece. Returns the number of moves.
+     */
+    public static int generateLegalMoves(BitboardPosition pos, MoveList moves) {
+        return generate(pos, moves, false);
+    }
+
+    /**
+     * Like generateLegalMoves, but only captures (including en passant) and promotions: the moves a
+     * quiescence search looks at. Returns the number of moves.
+     */
+    public static int generateLegalCaptures(BitboardPosition pos, MoveList moves) {
+        return generate(pos, moves, true);
+    }
+
+    private static int generate(BitboardPosition pos, MoveList moves, boolean tacticalOnly) {
+        moves.clear();
+        int us = pos.getSideToMove();
+        int them = us ^ 1;
+        long own = pos.getOccupancy(us);
+        long enemy = pos.getOccupancy(them);
+        long occupied = pos.getAllOccupancy();
+        int kingSq = pos.kingSquare(us);
+
+        long checkers = 0L;
+        long pinned = 0L;
+        long checkMask = ~0L;
+        if (kingSq != NO_SQUARE) {
+            checkers = pos.attackersTo(kingSq, occupied) & enemy;
+            pinned = pinnedPieces(pos, us, kingSq);
+
+            // King moves: destination must not be attacked once the king has left its square
+            long lifted = occupied ^ Bitboards.bit(kingSq);
+            long kingTargets = Bitboards.KING_ATTACKS[kingSq] & (tacticalOnly ? enemy : ~own);
+            while (kingTargets != 0) {
+                int to = Long.numberOfTrailingZeros(kingTargets);
+                kingTargets &= kingTargets - 1;
+                if (!pos.isSquareAttacked(to, them, lifted)) {
+                    addMove(moves, kingSq, to, enemy);
+                }
+            }
+            if (checkers == 0 && !tacticalOnly) {
+                addCastlingMoves(pos, us, kingSq, moves);
+            }
+
+            if (Long.bitCount(checkers) > 1) {
+                return moves.size(); // double check: only the king may move
+            }
+            if (checkers != 0) {
+                int checkerSq = Long.numberOfTrailingZeros(checkers);
+                checkMask = checkers | Bitboards.BETWEEN[kingSq][checkerSq];
+            }
+        }
+
+        long others = own & ~pos.getPieces(us, KING);
+        while (others != 0) {
+            int from = Long.numberOfTrailingZeros(others);
+            others &= others - 1;
+            long pinMask = (pinned & Bitboards.bit(from)) != 0 ? Bitboards.LINE[kingSq][from] : ~0L;
+            if (typeOf(pos.pieceAt(from)) == PAWN) {
+                addPawnMoves(pos, us, from, enemy, occupied, checkMask & pinMask, tacticalOnly, moves);
+                int ep = pos.getEpSquare();
+                if (ep != NO_SQUARE && (Bitboards.PAWN_ATTACKS[us][from] & pinMask & Bitboards.bit(ep)) != 0
+                    && isLegalEnPassant(pos, us, from, ep, kingSq)) {
+                    moves.add(Move.of(from, ep, Move.CAPTURE | Move.EN_PASSANT));
+                }
+            } else {
+                long t = pos.attacksFrom(from) & (tacticalOnly ? enemy : ~own) & checkMask & pinMask;
+                while (t != 0) {
+                    int to = Long.numberOfTrailingZeros(t);
+                    t &= t - 1;
+                    addMove(moves, from, to, enemy);
+                }
+            }
+        }
+        return moves.size();
+    }
+
+    /**
+     * Fills targets[square] with the legal destinations of the piece on each square of the side to move
+     * (other squares get 0), using the given list as scratch space. Returns the number of legal moves.
+     */
+    public static int generateLegalTargets(BitboardPosition pos, long[] targets, MoveList scratch) {
+        Arrays.fill(targets, 0L);
+        int count = generateLegalMoves(pos, scratch);
+        for (int i = 0; i < count; i++) {
+            int move = scratch.get(i);
+            targets[Move.from(move)] |= Bitboards.bit(Move.to(move));
+        }
+        return count;
+    }
+
+    private static void addMove(MoveList moves, int from, int to, long enemy) {
+        moves.add(Move.of(from, to, (enemy & Bitboards.bit(to)) != 0 ? Move.CAPTURE : 0));
+    }
+
+    /** Own pieces that are the only blocker between the king and an enemy slider. */
+    private static long pinnedPieces(BitboardPosition pos, int us, int kingSq) {
+        int them = us ^ 1;
+        long queens = pos.getPieces(them, QUEEN);
+        long snipers = (Bitboards.rookAttacks(kingSq, 0L) & (pos.getPieces(them, ROOK) | queens))
+            | (Bitboards.bishopAttacks(kingSq, 0L) & (pos.getPieces(them, BISHOP) | queens));
+        long occupied = pos.getAllOccupancy();
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[kingSq][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & pos.getOccupancy(us);
+            }
+        }
+        return pinned;
+    }
+
+    private static void addPawnMoves(BitboardPosition pos, int us, int from, long enemy, long occupied, long mask,
+                                     boolean tacticalOnly, MoveList moves) {
+        int step = us == WHITE ? -8 : 8;
+        int promotionRow = us == WHITE ? 0 : 7;
+        long captures = Bitboards.PAWN_ATTACKS[us][from] & enemy & mask;
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(moves, from, to, Move.CAPTURE, (to >>> 3) == promotionRow);
+        }
+        int one = from + step;
+        if (one >= 0 && one < 64 && (occupied & Bitboards.bit(one)) == 0) {
+            boolean promotes = (one >>> 3) == promotionRow;
+            if ((mask & Bitboards.bit(one)) != 0 && (promotes || !tacticalOnly)) {
+                addPawnMove(moves, from, one, 0, promotes);
+            }
+            if (tacticalOnly) {
+                return;
+            }
+            int two = one + step;
+            int startRow = us == WHITE ? 6 : 1;
+            if ((from >>> 3) == startRow && (occupied & Bitboards.bit(two)) == 0 && (mask & Bitboards.bit(two)) != 0) {
+                moves.add(Move.of(from, two, Move.DOUBLE_PUSH));
+            }
+        }
+    }
+
+    private static void addPawnMove(MoveList moves, int from, int to, int flags, boolean promotes) {
+        if (promotes) {
+            moves.add(Move.of(from, to, flags, QUEEN));
+            moves.add(Move.of(from, to, flags, ROOK));
+            moves.add(Move.of(from, to, flags, BISHOP));
+            moves.add(Move.of(from, to, flags, KNIGHT));
+        } else {
+            moves.add(Move.of(from, to, flags));
+        }
+    }
+
+    /**
+     * En passant removes two pawns from one rank at once, which pins and check masks cannot express,
+     * so the resulting occupancy is tested directly.
+     */
+    private static boolean isLegalEnPassant(BitboardPosition pos, int us, int from, int ep, int kingSq) {
+        if (kingSq == NO_SQUARE) {
+            return true;
+        }
+        int captured = ep + (us == WHITE ? 8 : -8);
+        long occupied = (pos.getAllOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(captured)) | Bitboards.bit(ep);
+        long attackers = pos.attackersTo(kingSq, occupied) & pos.getOccupancy(us ^ 1) & ~Bitboards.bit(captured);
+        return attackers == 0;
+    }
+
+    private static void addCastlingMoves(BitboardPosition pos, int us, int kingSq, MoveList moves) {
+        int row = us == WHITE ? 7 : 0;
+        if (kingSq != row * 8 + 4) {
+            return;
+        }
+        int rights = pos.getCastlingRights();
+        long occupied = pos.getAllOccupancy();
+        int them = us ^ 1;
+        int base = row * 8;
+        // O-O: f and g empty and not attacked
+        if ((rights & (us == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE)) != 0
+            && (occupied & (0x60L << base)) == 0
+            && !pos.isSquareAttacked(base + 5, them)
+            && !pos.isSquareAttacked(base + 6, them)) {
+            moves.add(Move.of(kingSq, base + 6, Move.CASTLE));
+        }
+        // O-O-O: b, c and d empty; only c and d must not be attacked
+        if ((rights & (us == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE)) != 0
+            && (occupied & (0x0EL << base)) == 0
+            && !pos.isSquareAttacked(base + 3, them)
+            && !pos.isSquareAttacked(base + 2, them)) {
+            moves.add(Move.of(kingSq, base + 2, Move.CASTLE));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package board;
+
+import java.util.Arrays;
+
+/**
+ * MoveList is a growable buffer of int-encoded moves (see Move).
+ * Generators clear and refill a list instead of returning new collections, so a caller that keeps
+ * one list per ply (or per thread) generates moves without allocating.
+ */
+public final class MoveList {
+    // No chess position has more than 218 legal moves
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+        this.size = 0;
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void swap(int i, int j) {
+        int tmp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = tmp;
+    }
+
+    /** Creates one list per ply, for searches that must not allocate while recursing. */
+    public static MoveList[] perPly(int plies) {
+        MoveList[] lists = new MoveList[plies];
+        for (int i = 0; i < plies; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(Move.toString(moves[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
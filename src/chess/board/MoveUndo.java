@@ -0,0 +1,80 @@
+package board;
+
+import pieces.Piece;
+
+/**
+ * MoveUndo is the small record returned by ChessBoard.makeMove and consumed by unmakeMove.
+ * It holds exactly what the move destroyed: the captured piece (and where it stood, which
+ * differs from the destination for en passant), the previous hasMoved flags, the rook
+ * relocated by castling, and the pawn replaced by a promotion. The board's Zobrist keys and castling
+ * rights from before the move are kept too, so undoing restores them without recomputation.
+ */
+public final class MoveUndo {
+    final Piece moved;
+    final Position from;
+    final Position to;
+    final boolean movedHadMoved;
+    final Piece captured;
+    final Position capturedAt;
+    final Piece rook;
+    final Position rookFrom;
+    final Position rookTo;
+    final boolean rookHadMoved;
+    final Piece promotedTo;
+    final long previousKey;
+    final long previousPawnKey;
+    final int previousCastlingRights;
+
+    MoveUndo(Piece moved, Position from, Position to, boolean movedHadMoved,
+             Piece captured, Position capturedAt,
+             Piece rook, Position rookFrom, Position rookTo, boolean rookHadMoved,
+             Piece promotedTo, long previousKey, long previousPawnKey, int previousCastlingRights) {
+        this.moved = moved;
+        this.from = from;
+        this.to = to;
+        this.movedHadMoved = movedHadMoved;
+        this.captured = captured;
+        this.capturedAt = capturedAt;
+        this.rook = rook;
+        this.rookFrom = rookFrom;
+        this.rookTo = rookTo;
+        this.rookHadMoved = rookHadMoved;
+        this.promotedTo = promotedTo;
+        this.previousKey = previousKey;
+        this.previousPawnKey = previousPawnKey;
+        this.previousCastlingRights = previousCastlingRights;
+    }
+
+    public Piece getMovedPiece() {
+        return this.moved;
+    }
+
+    public Position getFrom() {
+        return this.from;
+    }
+
+    public Position getTo() {
+        return this.to;
+    }
+
+    /** hasMoved flag of the moving piece before the move. */
+    public boolean getMovedHadMoved() {
+        return this.movedHadMoved;
+    }
+
+    public Piece getCapturedPiece() {
+        return this.captured;
+    }
+
+    public boolean isCastling() {
+        return this.rook != null;
+    }
+
+    public boolean isEnPassant() {
+        return this.captured != null && !this.capturedAt.equals(this.to);
+    }
+
+    public Piece getPromotedPiece() {
+        return this.promotedTo;
+    }
+}
@@ -0,0 +1,175 @@
+package board;
+
+import static board.BitboardPosition.*;
+
+/**
+ * PositionSnapshot is an immutable position: applying a move returns a new snapshot and leaves
+ * this one untouched, so a snapshot can be kept (undo history, spectators) or handed to another
+ * thread (GUI rendering, engine workers) without copying or locking.
+ * Pieces are stored as one bitboard array per color that is never written after construction.
+ * A move copies only the mover's array and shares the opponent's unless it captures, so
+ * applying a move costs a few dozen longs regardless of game length, and taking a snapshot is free.
+ * All fields are final, which makes instances safely publishable across threads.
+ */
+public final class PositionSnapshot {
+    // byColor[color][type]; shared between snapshots, never modified
+    private final long[][] byColor;
+    private final int sideToMove;
+    private final int castlingRights;
+    private final int epSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long zobristKey;
+
+    private PositionSnapshot(long[] white, long[] black, int sideToMove, int castlingRights, int epSquare,
+                             int halfmoveClock, int fullmoveNumber, long zobristKey) {
+        this.byColor = new long[][] {white, black};
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.epSquare = epSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.zobristKey = zobristKey;
+    }
+
+    /** Freezes a mutable position, with the given clocks (used for FEN output). */
+    public static PositionSnapshot of(BitboardPosition pos, int halfmoveClock, int fullmoveNumber) {
+        long[][] pieces = new long[2][6];
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                pieces[color][type] = pos.getPieces(color, type);
+            }
+        }
+        return new PositionSnapshot(pieces[WHITE], pieces[BLACK], pos.getSideToMove(), pos.getCastlingRights(),
+            pos.getEpSquare(), halfmoveClock, fullmoveNumber, pos.getZobristKey());
+    }
+
+    public static PositionSnapshot fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        int halfmove = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        int fullmove = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        return of(BitboardPosition.fromFen(fen), halfmove, fullmove);
+    }
+
+    /**
+     * Returns the position after a legal move (see Move), sharing every bitboard array the move does not touch.
+     */
+    public PositionSnapshot apply(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int movedType = typeAt(us, from);
+        long key = zobristKey ^ Zobrist.castling(castlingRights)
+            ^ Zobrist.enPassant(hashedEpFile(epSquare, us, byColor[us][PAWN]));
+
+        long[] own = byColor[us].clone();
+        long[] enemy = byColor[them];
+        if (Move.isCapture(move)) {
+            int capturedSq = Move.isEnPassant(move) ? to + (us == WHITE ? 8 : -8) : to;
+            int capturedType = typeAt(them, capturedSq);
+            enemy = enemy.clone();
+            enemy[capturedType] ^= Bitboards.bit(capturedSq);
+            key ^= Zobrist.piece(pieceCode(them, capturedType), capturedSq);
+        }
+        int placedType = Move.isPromotion(move) ? Move.promotion(move) : movedType;
+        own[movedType] ^= Bitboards.bit(from);
+        own[placedType] ^= Bitboards.bit(to);
+        key ^= Zobrist.piece(pieceCode(us, movedType), from) ^ Zobrist.piece(pieceCode(us, placedType), to);
+        if (Move.isCastle(move)) {
+            int base = to & ~7;
+            boolean kingside = (to & 7) == 6;
+            int rookFrom = kingside ? base + 7 : base;
+            int rookTo = kingside ? base + 5 : base + 3;
+            own[ROOK] ^= Bitboards.bit(rookFrom) | Bitboards.bit(rookTo);
+            key ^= Zobrist.piece(pieceCode(us, ROOK), rookFrom) ^ Zobrist.piece(pieceCode(us, ROOK), rookTo);
+        }
+
+        int rights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        int ep = Move.isDoublePush(move) ? (from + to) / 2 : NO_SQUARE;
+        key ^= Zobrist.castling(rights) ^ Zobrist.enPassant(hashedEpFile(ep, them, enemy[PAWN])) ^ Zobrist.BLACK_TO_MOVE;
+        int halfmove = movedType == PAWN || Move.isCapture(move) ? 0 : halfmoveClock + 1;
+        int fullmove = us == BLACK ? fullmoveNumber + 1 : fullmoveNumber;
+        return us == WHITE
+            ? new PositionSnapshot(own, enemy, them, rights, ep, halfmove, fullmove, key)
+            : new PositionSnapshot(enemy, own, them, rights, ep, halfmove, fullmove, key);
+    }
+
+    /** Thaws the snapshot into a mutable position, e.g. for move generation or search on a worker thread. */
+    public BitboardPosition toBitboardPosition() {
+        BitboardPosition pos = new BitboardPosition();
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                long bb = byColor[color][type];
+                while (bb != 0) {
+                    pos.putPiece(pieceCode(color, type), Long.numberOfTrailingZeros(bb));
+                    bb &= bb - 1;
+                }
+            }
+        }
+        pos.setState(sideToMove, castlingRights, epSquare);
+        return pos;
+    }
+
+    /** Piece code on a square, or NO_PIECE. */
+    public int pieceAt(int square) {
+        long b = Bitboards.bit(square);
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                if ((byColor[color][type] & b) != 0) {
+                    return pieceCode(color, type);
+                }
+            }
+        }
+        return NO_PIECE;
+    }
+
+    public long getPieces(int color, int type) {
+        return this.byColor[color][type];
+    }
+
+    public int getSideToMove() {
+        return this.sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    public int getEpSquare() {
+        return this.epSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return this.fullmoveNumber;
+    }
+
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    public String toFen() {
+        String fen = toBitboardPosition().toFen();
+        // BitboardPosition does not track clocks; replace its placeholder "0 1"
+        return fen.substring(0, fen.length() - 3) + halfmoveClock + " " + fullmoveNumber;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+
+    private int typeAt(int color, int square) {
+        long b = Bitboards.bit(square);
+        for (int type = PAWN; type <= KING; type++) {
+            if ((byColor[color][type] & b) != 0) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("No piece of color " + color + " on square " + square);
+    }
+}
@@ -0,0 +1,74 @@
+package board;
+
+import pieces.Piece;
+
+/**
+ * Zobrist keys for identifying positions with a single long.
+ * A position key is the XOR of one key per (piece, square), one for the castling-rights mask,
+ * one for the en passant file and one when black is to move. Every change to the position is an
+ * XOR in or out, so keys are maintained incrementally instead of being recomputed.
+ * The en passant file is only hashed when a pawn of the side to move stands ready to capture,
+ * so positions that differ only by an unusable en passant square share a key.
+ * A pawn key XORs only the pawns' piece-square keys; it changes on pawn moves, captures of pawns
+ * and promotions only, which is what pawn-structure caches key on.
+ * Keys come from a fixed-seed generator and are identical across runs.
+ */
+public final class Zobrist {
+    private Zobrist() {}
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = next(seed);
+                PIECE_SQUARE[piece][sq] = scramble(seed);
+            }
+        }
+        // No rights hashes to 0, so an empty board has key 0
+        for (int i = 1; i < 16; i++) {
+            seed = next(seed);
+            CASTLING[i] = scramble(seed);
+        }
+        for (int i = 0; i < 8; i++) {
+            seed = next(seed);
+            EN_PASSANT_FILE[i] = scramble(seed);
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = scramble(seed);
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    public static long piece(Piece piece, int row, int col) {
+        int code = BitboardPosition.pieceCode(BitboardPosition.colorOf(piece.getColor()), BitboardPosition.typeOf(piece));
+        return PIECE_SQUARE[code][row * 8 + col];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /** Key for an en passant file, or 0 for none (file < 0). */
+    public static long enPassant(int file) {
+        return file < 0 ? 0L : EN_PASSANT_FILE[file];
+    }
+
+    private static long next(long x) {
+        // xorshift64
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+
+    private static long scramble(long x) {
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -0,0 +1,165 @@
+package book;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import board.BitboardPosition;
+import board.Move;
+import board.MoveList;
+
+/**
+ * A Polyglot opening book (.bin), memory-mapped read-only.
+ * - The file is a sequence of 16-byte big-endian entries sorted by key (unsigned): key (8 bytes),
+ *   move (2), weight (2) and a learn field (4, unused). A position's moves are a run of entries
+ *   with its key (see PolyglotKeys), found by binary search.
+ * - Moves pack to file and rank in bits 0-5, from file and rank in bits 6-11 (rank 0 = the first rank)
+ *   and the promotion piece in bits 12-14 (1 knight .. 4 queen). Castling is written as the king
+ *   taking its own rook (e1h1), and is matched to the legal king move (e1g1).
+ * - chooseMove picks among the position's legal book moves at random, in proportion to their weights.
+ * The file is mapped in chunks of at most 1 GB, so books of any size live in the page cache rather
+ * than the heap. Lookups only read the mappings at absolute offsets and allocate nothing, so one
+ * instance can serve every thread; open returns the same instance for the same files.
+ */
+public final class PolyglotBook {
+    private static final int ENTRY_BYTES = 16;
+    private static final int CHUNK_SHIFT = 26; // 2^26 entries = 1 GB per mapping
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private static final Map<String, PolyglotBook> OPEN = new HashMap<>();
+
+    private final MappedByteBuffer[] chunks;
+    private final long entries;
+    private final PolyglotKeys keys;
+
+    private PolyglotBook(MappedByteBuffer[] chunks, long entries, PolyglotKeys keys) {
+        this.chunks = chunks;
+        this.entries = entries;
+        this.keys = keys;
+    }
+
+    /**
+     * Opens a book, with the Polyglot random numbers read from keyFile (see PolyglotKeys.load); throws
+     * IllegalArgumentException if the book's size is not a whole number of entries.
+     */
+    public static synchronized PolyglotBook open(Path file, Path keyFile) throws IOException {
+        String id = file.toAbsolutePath().normalize() + "|" + keyFile.toAbsolutePath().normalize();
+        PolyglotBook book = OPEN.get(id);
+        if (book == null) {
+            book = map(file, PolyglotKeys.load(keyFile));
+            OPEN.put(id, book);
+        }
+        return book;
+    }
+
+    private static PolyglotBook map(Path file, PolyglotKeys keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IllegalArgumentException("Not a Polyglot book (size " + size + "): " + file);
+            }
+            long entries = size / ENTRY_BYTES;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((entries + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = ((long) i << CHUNK_SHIFT) * ENTRY_BYTES;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, (CHUNK_MASK + 1) * ENTRY_BYTES));
+                chunks[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            // The mappings stay valid after the channel is closed
+            return new PolyglotBook(chunks, entries, keys);
+        }
+    }
+
+    public long getEntryCount() {
+        return this.entries;
+    }
+
+    public PolyglotKeys getKeys() {
+        return this.keys;
+    }
+
+    /**
+     * A book move for pos among its legal moves, chosen at random by weight, or Move.NONE when the
+     * position is not in the book (or only with weight-0 moves).
+     */
+    public int chooseMove(BitboardPosition pos, MoveList legal, Random random) {
+        long key = keys.key(pos);
+        long first = firstEntry(key);
+        int total = 0;
+        for (long i = first; i < entries && entryKey(i) == key; i++) {
+            if (toMove(entryMove(i), legal) != Move.NONE) {
+                total += entryWeight(i);
+            }
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int pick = random.nextInt(total);
+        for (long i = first; ; i++) {
+            int move = toMove(entryMove(i), legal);
+            if (move != Move.NONE) {
+                pick -= entryWeight(i);
+                if (pick < 0) {
+                    return move;
+                }
+            }
+        }
+    }
+
+    // Index of the first entry whose key is not below key (unsigned), or entries if there is none
+    private long firstEntry(long key) {
+        long lo = 0;
+        long hi = entries;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(entryKey(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long entryKey(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].getLong((int) (i & CHUNK_MASK) * ENTRY_BYTES);
+    }
+
+    private int entryMove(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].getShort((int) (i & CHUNK_MASK) * ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    private int entryWeight(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].getShort((int) (i & CHUNK_MASK) * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    /** The legal move a Polyglot move stands for, or Move.NONE if it is not legal here. */
+    static int toMove(int polyglotMove, MoveList legal) {
+        int to = square(polyglotMove & 0x3F);
+        int from = square((polyglotMove >>> 6) & 0x3F);
+        int promotion = (polyglotMove >>> 12) & 0x7;
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (Move.from(move) != from) {
+                continue;
+            }
+            // Castling: the book names the rook's square, the move the king's destination
+            int target = Move.isCastle(move) ? (Move.to(move) & ~7) + ((Move.to(move) & 7) == 6 ? 7 : 0) : Move.to(move);
+            if (target == to && (Move.isPromotion(move) ? Move.promotion(move) : 0) == promotion) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Polyglot square (rank * 8 + file, rank 0 = first rank) to board square (a8 = 0)
+    private static int square(int polyglot) {
+        return (7 - (polyglot >>> 3)) * 8 + (polyglot & 7);
+    }
+}
@@ -0,0 +1,110 @@
+package book;
+
+import static board.BitboardPosition.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import board.BitboardPosition;
+import board.Bitboards;
+
+/**
+ * Position keys in the Polyglot book format, which uses its own Zobrist scheme (not board.Zobrist):
+ * 781 fixed random numbers, the "Random64" array published with the format.
+ * - Pieces: entry 64 * kind + 8 * rank + file, kind = 2 * type + 1 for White (black pawn 0,
+ *   white pawn 1, ... white king 11), rank 0 = the first rank.
+ * - Castling rights: 768 + (White kingside, White queenside, Black kingside, Black queenside).
+ * - En passant: 772 + file, only when a pawn of the side to move could capture there.
+ * - 780 when White is to move.
+ * The numbers are not part of this project; load reads them from any text file holding them as
+ * 0x-prefixed 16-digit hex constants in order, such as Polyglot's pg_key.c or the format description,
+ * and checks them against the keys published with the format, so a wrong file fails at once instead of
+ * producing keys no book contains.
+ */
+public final class PolyglotKeys {
+    static final int COUNT = 781;
+    private static final int CASTLING = 768;
+    private static final int EN_PASSANT = 772;
+    private static final int TURN = 780;
+    private static final Pattern HEX = Pattern.compile("0[xX]([0-9A-Fa-f]{16})");
+
+    // Test positions and keys from the format description: 1.e4 d5 2.e5 f5 3.Ke2 Kf7 and 1.a4 b5 2.h4 b4
+    // 3.c4 bxc3 4.Ra3, which between them use piece, castling, en passant and side-to-move numbers
+    private static final String[][] PUBLISHED = {
+        {START_FEN, "463b96181691fc9c"},
+        {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196"},
+        {"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0"},
+        {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1"},
+        {"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9"},
+        {"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637"},
+        {"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560"},
+    };
+
+    private final long[] random;
+
+    private PolyglotKeys(long[] random) {
+        this.random = random;
+    }
+
+    /**
+     * Reads the first 781 hex constants of a file; throws IllegalArgumentException if it has fewer, or if
+     * they do not give the published keys of the format's test positions.
+     */
+    public static PolyglotKeys load(Path file) throws IOException {
+        Matcher m = HEX.matcher(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+        long[] random = new long[COUNT];
+        int n = 0;
+        while (n < COUNT && m.find()) {
+            random[n++] = Long.parseUnsignedLong(m.group(1), 16);
+        }
+        if (n < COUNT) {
+            throw new IllegalArgumentException("Expected " + COUNT + " Polyglot random numbers, found " + n + ": " + file);
+        }
+        PolyglotKeys keys = new PolyglotKeys(random);
+        for (String[] test : PUBLISHED) {
+            long key = keys.key(BitboardPosition.fromFen(test[0]));
+            if (key != Long.parseUnsignedLong(test[1], 16)) {
+                throw new IllegalArgumentException("Not Polyglot's random numbers: key " + Long.toHexString(key)
+                    + " instead of " + test[1] + " for " + test[0] + " in " + file);
+            }
+        }
+        return keys;
+    }
+
+    /** Polyglot key of a position. */
+    public long key(BitboardPosition pos) {
+        long key = 0L;
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                int kind = 2 * type + (color == WHITE ? 1 : 0);
+                long pieces = pos.getPieces(color, type);
+                while (pieces != 0) {
+                    int sq = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    key ^= random[64 * kind + 8 * (7 - (sq >>> 3)) + (sq & 7)];
+                }
+            }
+        }
+        int rights = pos.getCastlingRights();
+        for (int i = 0; i < 4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                key ^= random[CASTLING + i];
+            }
+        }
+        int us = pos.getSideToMove();
+        int ep = pos.getEpSquare();
+        if (ep != NO_SQUARE && (Bitboards.PAWN_ATTACKS[us ^ 1][ep] & pos.getPieces(us, PAWN)) != 0) {
+            key ^= random[EN_PASSANT + (ep & 7)];
+        }
+        if (us == WHITE) {
+            key ^= random[TURN];
+        }
+        return key;
+    }
+}
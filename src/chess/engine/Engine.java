@@ -0,0 +1,384 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import bitbase.Bitbases;
+import book.PolyglotBook;
+import board.BitboardPosition;
+import board.Move;
+import board.MoveGenerator;
+import board.MoveList;
+import board.PositionSnapshot;
+import game.ChessGame;
+
+/**
+ * Engine chooses moves for a ChessGame. Each search runs on a private copy of the game's published
+ * snapshot, so the game can keep being rendered (or even played) while the engine thinks.
+ * With more than one thread, helper threads search the same root on their own copies (Lazy SMP)
+ * and share the transposition table; the main thread's search decides the move.
+ * With an opening book set, positions in the book are answered from it without searching.
+ * With endgame bitbases set, every search thread probes them (see Search).
+ * Usage: java engine.Engine [depth] [fen] [--threads n] [--hash mb] [--eval name] [--smp-bench] [--eval-bench]
+ *                           [--movetime ms] [--time ms] [--inc ms] [--movestogo n] [--book file --book-keys file]
+ *                           [--bitbases file]
+ *        java engine.Engine --write-pst-net file
+ * --eval takes "pst" (default), "material" or the path of an NNUE network file.
+ * --time, --inc and --movestogo give the side to move's clock; with a time limit and no depth the
+ * search is only limited by time, otherwise depth defaults to 6.
+ * --book takes a Polyglot .bin book, --book-keys the file with Polyglot's random numbers (see PolyglotKeys).
+ * --bitbases takes a bitbase file, generated first if it does not exist (see Bitbases).
+ */
+public final class Engine {
+    public static final int DEFAULT_HASH_MB = 16;
+
+    private final Evaluator evaluator;
+    private TranspositionTable tt;
+    private int threads = 1;
+    // One evaluator per search thread, kept across searches so their caches stay warm
+    private Evaluator[] threadEvaluators = new Evaluator[0];
+    private volatile Search[] current;
+    private volatile PolyglotBook book;
+    private volatile Bitbases bitbases;
+
+    public Engine() {
+        this(new PieceSquareEvaluator());
+    }
+
+    public Engine(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.tt = new TranspositionTable(DEFAULT_HASH_MB);
+    }
+
+    /** Replaces the transposition table with an empty one of the given size; not during a search. */
+    public void setHashSize(int megabytes) {
+        this.tt = new TranspositionTable(megabytes);
+    }
+
+    /** Forgets everything learned in earlier searches (e.g. on a new game). */
+    public void clearHash() {
+        this.tt.clear();
+    }
+
+    /** Number of search threads, including the main one; not during a search. */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /** Evaluator cache statistics (see Evaluator.getStatistics) of each search thread, main thread first. */
+    public String[] getEvaluatorStatistics() {
+        String[] res = new String[Math.min(threads, threadEvaluators.length)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = threadEvaluators[i].getStatistics();
+        }
+        return res;
+    }
+
+    /** Opening book consulted before every search (null for none); a book move is played without searching. */
+    public void setBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    /** Endgame bitbases probed by every search (null for none). */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return this.tt;
+    }
+
+    /** Searches the game's current position; blocks until a limit is reached or stop() is called. */
+    public SearchResult search(ChessGame game, SearchLimits limits, SearchListener listener) {
+        return search(game.getSnapshot(), game.getGameState().getReversibleKeys(), limits, listener);
+    }
+
+    /**
+     * Searches a position given as a snapshot plus the keys of the positions since the last
+     * irreversible move (ending with this one), used for repetition detection.
+     */
+    public SearchResult search(PositionSnapshot position, long[] history, SearchLimits limits, SearchListener listener) {
+        PolyglotBook book = this.book;
+        if (book != null) {
+            BitboardPosition pos = position.toBitboardPosition();
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(pos, moves);
+            int move = book.chooseMove(pos, moves, ThreadLocalRandom.current());
+            if (move != Move.NONE) {
+                return new SearchResult(move, null, new long[threads]);
+            }
+        }
+        tt.newSearch();
+        if (threadEvaluators.length < threads) {
+            Evaluator[] grown = Arrays.copyOf(threadEvaluators, threads);
+            for (int i = threadEvaluators.length; i < threads; i++) {
+                grown[i] = evaluator.forThread();
+            }
+            threadEvaluators = grown;
+        }
+        Search[] group = new Search[threads];
+        Bitbases bitbases = this.bitbases;
+        for (int i = 0; i < threads; i++) {
+            group[i] = new Search(position.toBitboardPosition(), history, position.getHalfmoveClock(),
+                threadEvaluators[i], tt);
+            group[i].joinGroup(group, i);
+            group[i].useBitbases(bitbases);
+        }
+        // Helpers have no limits of their own; they run until the main search is done
+        Thread[] helpers = new Thread[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            Search helper = group[i];
+            helpers[i - 1] = new Thread(() -> helper.run(new SearchLimits(), null), "search-helper-" + i);
+            helpers[i - 1].setDaemon(true);
+        }
+        current = group;
+        try {
+            for (Thread helper : helpers) {
+                helper.start();
+            }
+            SearchResult result = group[0].run(limits, listener);
+            stopAndJoin(group, helpers);
+            long[] nodes = new long[threads];
+            for (int i = 0; i < threads; i++) {
+                nodes[i] = group[i].getNodes();
+            }
+            return new SearchResult(result.getBestMove(), result.getInfo(), nodes);
+        } finally {
+            stopAndJoin(group, helpers);
+            current = null;
+        }
+    }
+
+    private static void stopAndJoin(Search[] group, Thread[] helpers) {
+        for (Search search : group) {
+            search.stop();
+        }
+        boolean interrupted = false;
+        for (Thread helper : helpers) {
+            while (helper.isAlive()) {
+                try {
+                    helper.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Stops the running search, if any; it then returns its best move so far. */
+    public void stop() {
+        Search[] group = current;
+        if (group != null) {
+            group[0].stop();
+        }
+    }
+
+    /** Ends pondering in the running search (see SearchLimits.ponder): its time limits start now. */
+    public void ponderHit() {
+        Search[] group = current;
+        if (group != null) {
+            group[0].ponderHit();
+        }
+    }
+
+    /** Whether a search has started and not yet returned. */
+    public boolean isSearching() {
+        return current != null;
+    }
+
+    /**
+     * Evaluator by name: "pst" (PieceSquareEvaluator), "material" (MaterialEvaluator), or the path of an
+     * NNUE network file for an NnueEvaluator.
+     */
+    public static Evaluator evaluator(String name) throws IOException {
+        switch (name) {
+            case "pst": return new PieceSquareEvaluator();
+            case "material": return new MaterialEvaluator();
+            default: return new NnueEvaluator(NnueNetwork.load(Paths.get(name)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int depth = -1;
+        long moveTime = -1;
+        long time = -1;
+        long inc = 0;
+        int movesToGo = 0;
+        String bookFile = null;
+        String bookKeys = null;
+        String bitbaseFile = null;
+        String fen = null;
+        int threads = 1;
+        int hashMb = DEFAULT_HASH_MB;
+        String eval = "pst";
+        boolean smpBench = false;
+        boolean evalBench = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--hash")) {
+                hashMb = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--eval")) {
+                eval = args[++i];
+            } else if (args[i].equals("--write-pst-net")) {
+                NnueNetwork.writePieceSquareNetwork(Paths.get(args[++i]));
+                return;
+            } else if (args[i].equals("--movetime")) {
+                moveTime = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--time")) {
+                time = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--inc")) {
+                inc = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--movestogo")) {
+                movesToGo = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--book")) {
+                bookFile = args[++i];
+            } else if (args[i].equals("--book-keys")) {
+                bookKeys = args[++i];
+            } else if (args[i].equals("--bitbases")) {
+                bitbaseFile = args[++i];
+            } else if (args[i].equals("--smp-bench")) {
+                smpBench = true;
+            } else if (args[i].equals("--eval-bench")) {
+                evalBench = true;
+            } else if (args[i].matches("\\d+")) {
+                depth = Integer.parseInt(args[i]);
+            } else {
+                fen = fen == null ? args[i] : fen + " " + args[i];
+            }
+        }
+        boolean timed = moveTime >= 0 || time >= 0;
+        if (depth < 0) {
+            depth = timed ? Search.MAX_PLY : 6;
+        }
+        if (evalBench) {
+            evalBench(evaluator(eval));
+            return;
+        }
+        Engine engine = new Engine(evaluator(eval));
+        engine.setHashSize(hashMb);
+        if (smpBench) {
+            smpBench(engine, depth);
+            return;
+        }
+        engine.setThreads(threads);
+        if (bookFile != null) {
+            if (bookKeys == null) {
+                throw new IllegalArgumentException("--book needs --book-keys");
+            }
+            engine.setBook(PolyglotBook.open(Paths.get(bookFile), Paths.get(bookKeys)));
+        }
+        if (bitbaseFile != null) {
+            engine.setBitbases(Bitbases.loadOrGenerate(Paths.get(bitbaseFile)));
+        }
+        PositionSnapshot position = PositionSnapshot.fromFen(fen != null ? fen : BitboardPosition.START_FEN);
+        SearchLimits limits = new SearchLimits().depth(depth);
+        if (moveTime >= 0) {
+            limits.moveTime(moveTime);
+        }
+        if (time >= 0) {
+            limits.clock(time, inc).movesToGo(movesToGo);
+        }
+        SearchResult result = engine.search(position, new long[0], limits, System.out::println);
+        System.out.println(result);
+        System.out.println("thread nodes " + Arrays.toString(result.getThreadNodes()));
+        String[] statistics = engine.getEvaluatorStatistics();
+        for (int i = 0; i < statistics.length; i++) {
+            if (!statistics[i].isEmpty()) {
+                System.out.println("thread " + i + ": " + statistics[i]);
+            }
+        }
+    }
+
+    private static final String[] BENCH_POSITIONS = {
+        BitboardPosition.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    /**
+     * Evaluations per second along random games, with the evaluator's incremental updates for every
+     * move included, as in a search. The games are generated before the clock starts.
+     */
+    private static void evalBench(Evaluator evaluator) {
+        Random random = new Random(1);
+        MoveList moves = new MoveList();
+        int[][] games = new int[2_000][];
+        for (int game = 0; game < games.length; game++) {
+            BitboardPosition pos = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+            MoveList played = new MoveList();
+            while (played.size() < Search.MAX_PLY && MoveGenerator.generateLegalMoves(pos, moves) > 0) {
+                int move = moves.get(random.nextInt(moves.size()));
+                pos.makeMove(move);
+                played.add(move);
+            }
+            games[game] = new int[played.size()];
+            for (int i = 0; i < played.size(); i++) {
+                games[game][i] = played.get(i);
+            }
+        }
+        long evals = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < 10; round++) {
+            for (int[] game : games) {
+                BitboardPosition pos = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+                evaluator.reset(pos);
+                for (int move : game) {
+                    evaluator.beforeMakeMove(pos, move);
+                    pos.makeMove(move);
+                    checksum += evaluator.evaluate(pos);
+                }
+                for (int i = game.length - 1; i >= 0; i--) {
+                    pos.unmakeMove(game[i]);
+                    evaluator.afterUnmakeMove();
+                }
+                evals += game.length;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %d evaluations in %.3f s, %.0f evals/s (checksum %d)%n", evaluator.getClass().getSimpleName(),
+            evals, elapsed / 1e9, evals * 1e9 / elapsed, checksum);
+        if (!evaluator.getStatistics().isEmpty()) {
+            System.out.println(evaluator.getStatistics());
+        }
+    }
+
+    /** Time to reach the given depth on the bench positions at 1, 2, 4, 8 and 16 threads, from an empty table. */
+    private static void smpBench(Engine engine, int depth) {
+        System.out.println("cores " + Runtime.getRuntime().availableProcessors() + ", depth " + depth);
+        long baseline = 0;
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            engine.setThreads(threads);
+            long elapsed = 0;
+            long nodes = 0;
+            for (String fen : BENCH_POSITIONS) {
+                engine.clearHash();
+                long start = System.nanoTime();
+                SearchResult result = engine.search(PositionSnapshot.fromFen(fen), new long[0], new SearchLimits().depth(depth), null);
+                elapsed += System.nanoTime() - start;
+                nodes += result.getInfo().getNodes();
+            }
+            if (threads == 1) {
+                baseline = elapsed;
+            }
+            System.out.printf("threads %2d: %8.3f s, %12d nodes, %.0f nodes/s, speedup %.2f%n", threads, elapsed / 1e9,
+                nodes, nodes * 1e9 / elapsed, (double) baseline / elapsed);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package engine;
+
+import board.BitboardPosition;
+
+/**
+ * Static evaluation used at the leaves of the search.
+ * Scores are in centipawns from the point of view of the side to move.
+ * Evaluators that keep incremental state (see NnueEvaluator) are told about every move the search
+ * makes and takes back; the default hooks do nothing, for evaluators that only read the position.
+ */
+public interface Evaluator {
+    int evaluate(BitboardPosition pos);
+
+    /**
+     * Returns the evaluator one search thread should use. Stateless evaluators can be shared and return
+     * themselves; incremental ones return a fresh instance (sharing read-only data such as weights).
+     */
+    default Evaluator forThread() {
+        return this;
+    }
+
+    /** Rebuilds any incremental state from scratch for pos, which becomes the root. */
+    default void reset(BitboardPosition pos) {
+    }
+
+    /** Called just before pos.makeMove(move), while pos is still the position before the move. */
+    default void beforeMakeMove(BitboardPosition pos, int move) {
+    }
+
+    /** Called just after pos.unmakeMove of the last move announced with beforeMakeMove. */
+    default void afterUnmakeMove() {
+    }
+
+    /** One line of cache statistics (e.g. hit rates) for reports, or "" if there is nothing to report. */
+    default String getStatistics() {
+        return "";
+    }
+}
@@ -0,0 +1,21 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.BitboardPosition;
+
+/**
+ * Material-only evaluation: piece counts (bit counts of the piece bitboards) times PIECE_VALUES.
+ */
+public final class MaterialEvaluator implements Evaluator {
+    @Override
+    public int evaluate(BitboardPosition pos) {
+        int us = pos.getSideToMove();
+        int score = 0;
+        for (int type = PAWN; type < KING; type++) {
+            int diff = Long.bitCount(pos.getPieces(us, type)) - Long.bitCount(pos.getPieces(us ^ 1, type));
+            score += diff * PIECE_VALUES[type];
+        }
+        return score;
+    }
+}
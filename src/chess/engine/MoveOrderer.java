@@ -0,0 +1,140 @@
+package engine;
+
+import board.BitboardPosition;
+import board.Move;
+import board.MoveList;
+
+/**
+ * MoveOrderer ranks moves so alpha-beta finds cutoffs early. Moves are scored into bands, highest first:
+ * - the transposition-table move,
+ * - captures and queen promotions that do not lose material by static exchange (SEE >= 0), most valuable
+ *   victim first, then least valuable attacker (MVV-LVA),
+ * - the two killer moves of the ply (quiet moves that caused a cutoff at this ply in a sibling node),
+ * - the countermove of the previous move (the quiet reply that last refuted it),
+ * - other quiet moves by butterfly history: how often the same from/to move caused a cutoff, weighted by depth,
+ * - captures that lose material by SEE, by MVV-LVA.
+ * Moves are then taken one at a time with next(), a partial selection sort, since a cutoff usually
+ * comes before most of the list has been looked at. One MoveOrderer belongs to one search thread.
+ */
+final class MoveOrderer {
+    private static final int TT_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int KILLER_SCORE = 1 << 28;
+    private static final int COUNTER_SCORE = KILLER_SCORE - 1;
+    private static final int BAD_CAPTURE_SCORE = -(1 << 28);
+    // History scores stay within +-HISTORY_MAX, so quiets never leave their band
+    private static final int HISTORY_MAX = 1 << 14;
+
+    private final StaticExchange exchange;
+
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+    // Indexed by the piece code and target square of the previous move
+    private final int[][] counterMoves = new int[12][64];
+    // Indexed by side, from square and to square
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] scores = new int[Search.MAX_PLY + 1][MoveList.DEFAULT_CAPACITY];
+
+    MoveOrderer(StaticExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * Scores the moves of the node at ply.
+     * @param previousMove move that led to this node, or Move.NONE at the root
+     */
+    void score(BitboardPosition pos, MoveList moves, int ply, int ttMove, int previousMove) {
+        int[] plyScores = scores[ply];
+        int side = pos.getSideToMove();
+        int counter = previousMove == Move.NONE ? Move.NONE
+            : counterMoves[pos.pieceAt(Move.to(previousMove))][Move.to(previousMove)];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (move == ttMove) {
+                score = TT_SCORE;
+            } else if (isTactical(move)) {
+                score = (exchange.see(pos, move) >= 0 ? CAPTURE_SCORE : BAD_CAPTURE_SCORE) + mvvLva(pos, move);
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else if (move == counter) {
+                score = COUNTER_SCORE;
+            } else {
+                score = history[side][Move.from(move)][Move.to(move)];
+            }
+            plyScores[i] = score;
+        }
+    }
+
+    /** Moves the best-scored move among index..size-1 to index and returns it. */
+    int next(MoveList moves, int ply, int index) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int tmp = plyScores[index];
+            plyScores[index] = plyScores[best];
+            plyScores[best] = tmp;
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * True if the move last returned by next(moves, ply, index) is a TT move or a capture or queen promotion
+     * that does not lose material. Once this is false, it is false for the rest of the node's moves.
+     */
+    boolean isGoodTactical(int ply, int index) {
+        return scores[ply][index] >= CAPTURE_SCORE;
+    }
+
+    /**
+     * Records a beta cutoff by a quiet move: it becomes a killer of the ply and the countermove of the
+     * previous move, its history grows, and the quiet moves searched before it lose history.
+     */
+    void onCutoff(BitboardPosition pos, MoveList moves, int ply, int cutoffIndex, int depth, int previousMove) {
+        int move = moves.get(cutoffIndex);
+        if (isTactical(move)) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previousMove != Move.NONE) {
+            counterMoves[pos.pieceAt(Move.to(previousMove))][Move.to(previousMove)] = move;
+        }
+        int side = pos.getSideToMove();
+        int bonus = Math.min(16 * depth * depth, HISTORY_MAX / 4);
+        for (int i = 0; i < cutoffIndex; i++) {
+            int tried = moves.get(i);
+            if (!isTactical(tried)) {
+                updateHistory(side, tried, -bonus);
+            }
+        }
+        updateHistory(side, move, bonus);
+    }
+
+    // Gravity update: the closer a score gets to HISTORY_MAX, the less a bonus moves it, so it stays bounded
+    private void updateHistory(int side, int move, int bonus) {
+        int[] row = history[side][Move.from(move)];
+        int to = Move.to(move);
+        row[to] += bonus - row[to] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    private static boolean isTactical(int move) {
+        return Move.isCapture(move) || Move.promotion(move) == BitboardPosition.QUEEN;
+    }
+
+    private static int mvvLva(BitboardPosition pos, int move) {
+        int victim = Move.isEnPassant(move) ? BitboardPosition.PAWN
+            : Move.isCapture(move) ? BitboardPosition.typeOf(pos.pieceAt(Move.to(move))) : BitboardPosition.PAWN - 1;
+        int attacker = BitboardPosition.typeOf(pos.pieceAt(Move.from(move)));
+        return (victim + 1) * 8 - attacker + (Move.promotion(move) == BitboardPosition.QUEEN ? 64 : 0);
+    }
+}
@@ -0,0 +1,123 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.BitboardPosition;
+import board.Move;
+
+/**
+ * Neural evaluation with an NnueNetwork.
+ * - The accumulator (the hidden layer before clipping, for both perspectives) is kept per ply.
+ *   beforeMakeMove builds the next ply's accumulator from the current one by adding and subtracting
+ *   only the weight columns of the features the move changes: at most two pieces removed and two
+ *   added (castling, captures, promotions). afterUnmakeMove just steps back one ply.
+ * - evaluate only runs the output layer over the current accumulator.
+ * An instance belongs to one search thread; forThread returns a new one sharing the network.
+ */
+public final class NnueEvaluator implements Evaluator {
+    private final NnueNetwork net;
+    private final int hidden;
+    // accumulators[ply]: White's perspective in [0, hidden), Black's in [hidden, 2 * hidden)
+    private final short[][] accumulators;
+    private int ply;
+
+    public NnueEvaluator(NnueNetwork net) {
+        this.net = net;
+        this.hidden = net.getHiddenSize();
+        this.accumulators = new short[Search.MAX_PLY + 1][2 * hidden];
+    }
+
+    @Override
+    public Evaluator forThread() {
+        return new NnueEvaluator(net);
+    }
+
+    @Override
+    public void reset(BitboardPosition pos) {
+        ply = 0;
+        short[] acc = accumulators[0];
+        System.arraycopy(net.featureBias, 0, acc, 0, hidden);
+        System.arraycopy(net.featureBias, 0, acc, hidden, hidden);
+        long occupied = pos.getAllOccupancy();
+        while (occupied != 0) {
+            int sq = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            add(acc, pos.pieceAt(sq), sq);
+        }
+    }
+
+    @Override
+    public void beforeMakeMove(BitboardPosition pos, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = pos.pieceAt(from);
+        int us = colorOf(piece);
+        short[] acc = accumulators[ply + 1];
+        System.arraycopy(accumulators[ply], 0, acc, 0, 2 * hidden);
+        ply++;
+
+        if (Move.isCapture(move)) {
+            int capturedSq = Move.isEnPassant(move) ? to + (us == WHITE ? 8 : -8) : to;
+            subtract(acc, pos.pieceAt(capturedSq), capturedSq);
+        }
+        subtract(acc, piece, from);
+        add(acc, Move.isPromotion(move) ? pieceCode(us, Move.promotion(move)) : piece, to);
+        if (Move.isCastle(move)) {
+            int base = to & ~7;
+            boolean kingside = (to & 7) == 6;
+            int rook = pieceCode(us, ROOK);
+            subtract(acc, rook, kingside ? base + 7 : base);
+            add(acc, rook, kingside ? base + 5 : base + 3);
+        }
+    }
+
+    @Override
+    public void afterUnmakeMove() {
+        ply--;
+    }
+
+    @Override
+    public int evaluate(BitboardPosition pos) {
+        short[] acc = accumulators[ply];
+        int us = pos.getSideToMove() == WHITE ? 0 : hidden;
+        int them = hidden - us;
+        short[] weights = net.outputWeights;
+        // Up to 2H products of QA and a 16-bit weight: 2 * 256 * 255 * 32767 is past the int range
+        long sum = 0;
+        for (int i = 0; i < hidden; i++) {
+            sum += clip(acc[us + i]) * weights[i];
+        }
+        for (int i = 0; i < hidden; i++) {
+            sum += clip(acc[them + i]) * weights[hidden + i];
+        }
+        return (int) ((sum + net.outputBias) * NnueNetwork.SCALE / (NnueNetwork.QA * NnueNetwork.QB));
+    }
+
+    private static int clip(short value) {
+        return Math.min(Math.max(value, 0), NnueNetwork.QA);
+    }
+
+    private void add(short[] acc, int piece, int square) {
+        short[] w = net.featureWeights;
+        int white = NnueNetwork.feature(WHITE, piece, square) * hidden;
+        int black = NnueNetwork.feature(BLACK, piece, square) * hidden;
+        for (int i = 0; i < hidden; i++) {
+            acc[i] += w[white + i];
+        }
+        for (int i = 0; i < hidden; i++) {
+            acc[hidden + i] += w[black + i];
+        }
+    }
+
+    private void subtract(short[] acc, int piece, int square) {
+        short[] w = net.featureWeights;
+        int white = NnueNetwork.feature(WHITE, piece, square) * hidden;
+        int black = NnueNetwork.feature(BLACK, piece, square) * hidden;
+        for (int i = 0; i < hidden; i++) {
+            acc[i] -= w[white + i];
+        }
+        for (int i = 0; i < hidden; i++) {
+            acc[hidden + i] -= w[black + i];
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import board.PieceSquareTables;
+
+/**
+ * Weights of an efficiently updatable network (NNUE) with the layout 768 -> 2 x H -> 1:
+ * - 768 input features per perspective: (own or enemy, piece type, square), the square flipped for
+ *   Black so both sides see the board from their own first rank.
+ * - One hidden layer of H int16 neurons per perspective (the accumulator), sharing the feature weights;
+ *   it is clipped to [0, QA] before the output layer.
+ * - One output neuron with int16 weights over both accumulators, side to move first, and an int32 bias.
+ * The score in centipawns is output * SCALE / (QA * QB).
+ *
+ * File format, little endian: int magic "NNUE", int version (1), int H, then 768 * H feature weights
+ * (one column of H per feature), H feature biases, 2 * H output weights (all int16) and the int32 output
+ * bias. The file is memory-mapped and copied once into int16 arrays, whose simple loops the JIT can
+ * turn into vector instructions.
+ * Networks are trained outside this project; writePieceSquareNetwork makes one that reproduces the
+ * middlegame piece-square evaluation, so the pipeline can be used and tested without a trained net.
+ */
+public final class NnueNetwork {
+    public static final int FEATURES = 768;
+    public static final int QA = 255;
+    public static final int QB = 64;
+    public static final int SCALE = 400;
+
+    private static final int MAGIC = 0x45554E4E; // "NNUE" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final int hidden;
+    final short[] featureWeights;
+    final short[] featureBias;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private NnueNetwork(int hidden, short[] featureWeights, short[] featureBias, short[] outputWeights, int outputBias) {
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBias = featureBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /** Loads a network file; throws IllegalArgumentException if it is not a network of this layout. */
+    public static NnueNetwork load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.remaining() < HEADER_BYTES || map.getInt() != MAGIC || map.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not an NNUE network file: " + file);
+            }
+            int hidden = map.getInt();
+            long expected = HEADER_BYTES + 2L * ((long) FEATURES * hidden + hidden + 2L * hidden) + 4;
+            if (hidden <= 0 || channel.size() != expected) {
+                throw new IllegalArgumentException("Network size does not match its header: " + file);
+            }
+            short[] featureWeights = new short[FEATURES * hidden];
+            short[] featureBias = new short[hidden];
+            short[] outputWeights = new short[2 * hidden];
+            map.asShortBuffer().get(featureWeights);
+            map.position(map.position() + 2 * featureWeights.length);
+            map.asShortBuffer().get(featureBias);
+            map.position(map.position() + 2 * featureBias.length);
+            map.asShortBuffer().get(outputWeights);
+            map.position(map.position() + 2 * outputWeights.length);
+            return new NnueNetwork(hidden, featureWeights, featureBias, outputWeights, map.getInt());
+        }
+    }
+
+    public int getHiddenSize() {
+        return this.hidden;
+    }
+
+    /** Input feature of a piece on a square, seen from perspective (WHITE or BLACK). */
+    static int feature(int perspective, int piece, int square) {
+        int relative = colorOf(piece) == perspective ? 0 : 1;
+        int oriented = perspective == WHITE ? square : square ^ 56;
+        return (relative * 6 + typeOf(piece)) * 64 + oriented;
+    }
+
+    /**
+     * Writes a 12-neuron network whose output approximates the middlegame piece-square evaluation:
+     * neuron t (t < 6) sums own pieces of type t, neuron 6 + t enemy ones, each at 1/16 of their
+     * PieceSquareTables value. Only the side to move's accumulator feeds the output.
+     */
+    public static void writePieceSquareNetwork(Path file) throws IOException {
+        int hidden = 12;
+        int unit = 16;
+        // Keeps the king neurons (whose values can be negative) inside the clipping range
+        int kingBias = 16;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 2 * (FEATURES * hidden + hidden + 2 * hidden) + 4)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(hidden);
+        for (int relative = 0; relative < 2; relative++) {
+            for (int type = PAWN; type <= KING; type++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    // Features are seen from the perspective's side; enemy pieces stand on the far side
+                    int square = relative == 0 ? sq : sq ^ 56;
+                    int value = Math.round(PieceSquareTables.midgame(pieceCode(WHITE, type), square) / (float) unit);
+                    for (int n = 0; n < hidden; n++) {
+                        buf.putShort((short) (n == relative * 6 + type ? value : 0));
+                    }
+                }
+            }
+        }
+        for (int n = 0; n < hidden; n++) {
+            buf.putShort((short) (n % 6 == KING ? kingBias : 0));
+        }
+        // unit * QA * QB / SCALE: one accumulator step is worth unit centipawns
+        short weight = (short) Math.round(unit * (double) QA * QB / SCALE);
+        for (int n = 0; n < 2 * hidden; n++) {
+            buf.putShort((short) (n < 6 ? weight : n < hidden ? -weight : 0));
+        }
+        buf.putInt(0);
+        Files.write(file, buf.array());
+    }
+}
@@ -0,0 +1,85 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.BitboardPosition;
+
+/**
+ * PawnHashTable caches PawnStructure results by pawn key (BitboardPosition.getPawnKey). The pawns move
+ * on few of the moves a search makes, so most probes find the structure already evaluated.
+ * - Direct-mapped: an entry is overwritten by any other structure with the same index.
+ * - Each entry holds the packed middlegame/endgame score, the passed pawns of both colors and the king
+ *   shield scores for every king file, in parallel arrays.
+ * - Probes and hits are counted so the hit rate can be reported.
+ * Not thread-safe: every search thread has its own table (see Evaluator.forThread).
+ */
+final class PawnHashTable {
+    static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final long[] scores;
+    private final long[] passed;
+    private final long[][] shields;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    PawnHashTable(int entries) {
+        if (Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Entry count must be a power of two: " + entries);
+        }
+        this.keys = new long[entries];
+        this.scores = new long[entries];
+        this.passed = new long[entries];
+        this.shields = new long[2][entries];
+        this.mask = entries - 1;
+        // Key 0 (no pawns at all) must not look cached before it is stored
+        this.keys[0] = 1L;
+    }
+
+    /** Returns the index of the entry for the position's pawns, evaluating them first on a miss. */
+    int probe(BitboardPosition pos) {
+        long key = pos.getPawnKey();
+        int index = (int) key & mask;
+        probes++;
+        if (keys[index] == key) {
+            hits++;
+            return index;
+        }
+        long white = pos.getPieces(WHITE, PAWN);
+        long black = pos.getPieces(BLACK, PAWN);
+        keys[index] = key;
+        scores[index] = PawnStructure.evaluate(white, black);
+        passed[index] = PawnStructure.passedPawns(WHITE, white, black) | PawnStructure.passedPawns(BLACK, black, white);
+        shields[WHITE][index] = PawnStructure.shields(WHITE, white);
+        shields[BLACK][index] = PawnStructure.shields(BLACK, black);
+        return index;
+    }
+
+    int midgame(int index) {
+        return (int) scores[index];
+    }
+
+    int endgame(int index) {
+        return (int) (scores[index] >> 32);
+    }
+
+    /** Passed pawns of both colors (intersect with a color's pawns to separate them). */
+    long passedPawns(int index) {
+        return passed[index];
+    }
+
+    /** Middlegame shield score of a color whose king stands on kingFile. */
+    int shield(int index, int color, int kingFile) {
+        return (int) ((shields[color][index] >>> (8 * kingFile)) & 0xFF) - 128;
+    }
+
+    long getProbes() {
+        return probes;
+    }
+
+    /** Fraction of probes that found their structure cached, 0 before the first probe. */
+    double getHitRate() {
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+}
@@ -0,0 +1,147 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.Bitboards;
+
+/**
+ * Pawn-structure terms, computed from the two pawn bitboards alone so they can be cached by pawn key
+ * (see PawnHashTable). Scores are middlegame/endgame pairs from White's point of view.
+ * - Doubled: every pawn beyond the first on a file.
+ * - Isolated: no own pawn on an adjacent file.
+ * - Backward: no own pawn on an adjacent file level with or behind it, and its stop square is
+ *   attacked by an enemy pawn, so it can neither advance safely nor be defended by a pawn.
+ * - Passed: no enemy pawn ahead on its own or an adjacent file; the bonus grows with its rank.
+ * - Shield: for each file the king could stand on, own pawns one or two ranks ahead on that file and
+ *   its neighbours. Only the king's current file counts, so all eight are computed once per structure.
+ * Squares follow BitboardPosition (a8 = 0); White pawns move towards row 0.
+ */
+final class PawnStructure {
+    private static final int DOUBLED_MG = -10;
+    private static final int DOUBLED_EG = -20;
+    private static final int ISOLATED_MG = -10;
+    private static final int ISOLATED_EG = -15;
+    private static final int BACKWARD_MG = -8;
+    private static final int BACKWARD_EG = -10;
+    // By rank from the pawn's own side (index 1 = second rank, 6 = seventh)
+    static final int[] PASSED_MG = {0, 5, 10, 15, 30, 50, 80, 0};
+    static final int[] PASSED_EG = {0, 10, 20, 35, 60, 100, 150, 0};
+    // Shield pawn one rank ahead of the king's rank, two ranks ahead, or missing
+    private static final int SHIELD_NEAR = 12;
+    private static final int SHIELD_FAR = 6;
+    private static final int SHIELD_MISSING = -12;
+
+    static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // [color][square]: squares ahead of a pawn on its own and adjacent files
+    static final long[][] PASSED_SPAN = new long[2][64];
+    // [color][square]: squares on adjacent files level with or behind a pawn
+    private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = 0x0101010101010101L << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >>> 3;
+            int file = sq & 7;
+            long span = FILES[file] | ADJACENT_FILES[file];
+            long above = row == 0 ? 0L : -1L >>> (64 - row * 8);   // rows 0 .. row - 1
+            long below = row == 7 ? 0L : -1L << ((row + 1) * 8);   // rows row + 1 .. 7
+            long level = 0xFFL << (row * 8);
+            PASSED_SPAN[WHITE][sq] = span & above;
+            PASSED_SPAN[BLACK][sq] = span & below;
+            SUPPORT_SPAN[WHITE][sq] = ADJACENT_FILES[file] & (below | level);
+            SUPPORT_SPAN[BLACK][sq] = ADJACENT_FILES[file] & (above | level);
+        }
+    }
+
+    private PawnStructure() {}
+
+    /** Middlegame score in the low 32 bits and endgame score in the high 32 bits, White's view. */
+    static long evaluate(long whitePawns, long blackPawns) {
+        int mg = 0;
+        int eg = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            long own = color == WHITE ? whitePawns : blackPawns;
+            long enemy = color == WHITE ? blackPawns : whitePawns;
+            int sign = color == WHITE ? 1 : -1;
+            for (int file = 0; file < 8; file++) {
+                int count = Long.bitCount(own & FILES[file]);
+                if (count > 1) {
+                    mg += sign * DOUBLED_MG * (count - 1);
+                    eg += sign * DOUBLED_EG * (count - 1);
+                }
+            }
+            long pawns = own;
+            while (pawns != 0) {
+                int sq = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int file = sq & 7;
+                if ((own & ADJACENT_FILES[file]) == 0) {
+                    mg += sign * ISOLATED_MG;
+                    eg += sign * ISOLATED_EG;
+                } else if ((own & SUPPORT_SPAN[color][sq]) == 0) {
+                    int stop = sq + (color == WHITE ? -8 : 8);
+                    if ((Bitboards.PAWN_ATTACKS[color][stop] & enemy) != 0) {
+                        mg += sign * BACKWARD_MG;
+                        eg += sign * BACKWARD_EG;
+                    }
+                }
+                if ((enemy & PASSED_SPAN[color][sq]) == 0) {
+                    int rank = relativeRank(color, sq);
+                    mg += sign * PASSED_MG[rank];
+                    eg += sign * PASSED_EG[rank];
+                }
+            }
+        }
+        return (mg & 0xFFFFFFFFL) | ((long) eg << 32);
+    }
+
+    /** Pawns of the given color that no enemy pawn can stop or capture on their way. */
+    static long passedPawns(int color, long own, long enemy) {
+        long passed = 0L;
+        long pawns = own;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if ((enemy & PASSED_SPAN[color][sq]) == 0) {
+                passed |= 1L << sq;
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Middlegame shield score for each king file, packed as eight bytes (file 0 in the lowest byte),
+     * each offset by 128 so negative scores fit.
+     */
+    static long shields(int color, long own) {
+        int homeRow = color == WHITE ? 7 : 0;
+        int forward = color == WHITE ? -1 : 1;
+        long packed = 0L;
+        for (int kingFile = 0; kingFile < 8; kingFile++) {
+            int score = 0;
+            for (int file = Math.max(kingFile - 1, 0); file <= Math.min(kingFile + 1, 7); file++) {
+                if ((own & (1L << ((homeRow + forward) * 8 + file))) != 0) {
+                    score += SHIELD_NEAR;
+                } else if ((own & (1L << ((homeRow + 2 * forward) * 8 + file))) != 0) {
+                    score += SHIELD_FAR;
+                } else {
+                    score += SHIELD_MISSING;
+                }
+            }
+            packed |= (long) (score + 128) << (8 * kingFile);
+        }
+        return packed;
+    }
+
+    /** Rank counted from the color's own side: 0 = first rank, 7 = last. */
+    static int relativeRank(int color, int square) {
+        int row = square >>> 3;
+        return color == WHITE ? 7 - row : row;
+    }
+}
@@ -0,0 +1,53 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.BitboardPosition;
+import board.PieceSquareTables;
+
+/**
+ * Tapered piece-square evaluation: the middlegame and endgame sums BitboardPosition keeps up to date
+ * in makeMove/unmakeMove, plus pawn structure, blended by its incremental game phase.
+ * - Pawn-structure terms, passed pawns and king shields come from a PawnHashTable, so they are only
+ *   computed when the pawns change.
+ * - Outside the cache: a passed pawn whose stop square is occupied loses part of its endgame bonus,
+ *   and the king shield counts while the king is on its first two ranks.
+ * Each instance owns its pawn table, so forThread returns a new evaluator.
+ */
+public final class PieceSquareEvaluator implements Evaluator {
+    private static final int BLOCKED_PASSER_EG = -20;
+
+    private final PawnHashTable pawns = new PawnHashTable(PawnHashTable.DEFAULT_ENTRIES);
+
+    @Override
+    public Evaluator forThread() {
+        return new PieceSquareEvaluator();
+    }
+
+    @Override
+    public int evaluate(BitboardPosition pos) {
+        int entry = pawns.probe(pos);
+        int mg = pos.getMidgameScore() + pawns.midgame(entry);
+        int eg = pos.getEndgameScore() + pawns.endgame(entry);
+
+        long passed = pawns.passedPawns(entry);
+        long occupied = pos.getAllOccupancy();
+        eg += BLOCKED_PASSER_EG * Long.bitCount((passed & pos.getPieces(WHITE, PAWN)) >>> 8 & occupied);
+        eg -= BLOCKED_PASSER_EG * Long.bitCount((passed & pos.getPieces(BLACK, PAWN)) << 8 & occupied);
+
+        for (int color = WHITE; color <= BLACK; color++) {
+            int king = pos.kingSquare(color);
+            if (king != NO_SQUARE && PawnStructure.relativeRank(color, king) <= 1) {
+                int shield = pawns.shield(entry, color, king & 7);
+                mg += color == WHITE ? shield : -shield;
+            }
+        }
+        int score = PieceSquareTables.taper(mg, eg, pos.getPhase());
+        return pos.getSideToMove() == WHITE ? score : -score;
+    }
+
+    @Override
+    public String getStatistics() {
+        return String.format("pawn hash %d probes, %.1f%% hits", pawns.getProbes(), 100 * pawns.getHitRate());
+    }
+}
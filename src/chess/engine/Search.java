@@ -0,0 +1,390 @@
+package engine;
+
+import bitbase.Bitbases;
+import board.BitboardPosition;
+import board.Move;
+import board.MoveGenerator;
+import board.MoveList;
+
+/**
+ * Search finds the best move with negamax alpha-beta and iterative deepening.
+ * - The position is searched in place with BitboardPosition.makeMove/unmakeMove; move lists are
+ *   preallocated per ply, so the search does not allocate per node.
+ * - Each iteration reports depth, score, principal variation and speed to the listener; the
+ *   result is taken from the last completed iteration.
+ * - The node limit is checked at every node and the cancellation flag (stop) can be set from any thread.
+ * - Timed searches follow a TimeManager: its hard deadline is checked every few thousand nodes, its soft
+ *   one between iterations. With a single legal move only depth 1 is searched.
+ * - Repetitions of game or search positions since the last irreversible move score as draws, and so
+ *   does the hundredth half-move without one, unless it is checkmate.
+ * - With endgame bitbases, positions they cover below the root score as mate at their exact distance
+ *   or as draws without being searched.
+ * - A shared TranspositionTable cuts off positions already searched deeply enough, and its move is
+ *   tried first otherwise. Mate scores are stored relative to the node, not the root.
+ * - The other moves are ordered by MoveOrderer (captures, killers, countermoves, history), which learns
+ *   from the cutoffs of this search.
+ * - At the horizon a quiescence search resolves captures and promotions before evaluating: the side to
+ *   move may stand pat on the static evaluation, captures that cannot raise it to alpha even with a margin
+ *   are skipped (delta pruning), and so are captures that lose material by static exchange.
+ *   In check, all evasions are searched instead.
+ * - Lazy SMP: several Search instances on copies of the root can share one table. Helpers (index > 0)
+ *   skip some depths in a staggered pattern so the threads spread over different iterations, and
+ *   fill the table for the main thread (index 0), whose result and listener are the only ones used.
+ * A Search instance runs one search and is not thread-safe, except for stop(), ponderHit() and getNodes().
+ */
+public final class Search {
+    public static final int MAX_PLY = 128;
+    public static final int MATE = 32000;
+    public static final int INFINITY = 32500;
+    // Positional swing a capture may bring on top of the captured material, for delta pruning
+    private static final int DELTA_MARGIN = 200;
+
+    // Lazy SMP depth skipping: helper i skips depth d if ((d + SKIP_PHASE[j]) / SKIP_SIZE[j]) is odd, j = (i - 1) % 20
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final BitboardPosition pos;
+    private final Evaluator evaluator;
+    private final TranspositionTable tt;
+
+    // Position keys: the game's reversible history, then one per search ply (root at rootIndex)
+    private final long[] keys;
+    private final int rootIndex;
+    // Plies since the last capture or pawn move, per search ply
+    private final int[] halfmove = new int[MAX_PLY + 1];
+    private final MoveList[] moveLists = MoveList.perPly(MAX_PLY + 1);
+    private final MoveOrderer orderer = new MoveOrderer(new StaticExchange());
+    // Move played at each ply, for countermoves
+    private final int[] playedMoves = new int[MAX_PLY + 1];
+    // Triangular principal-variation table
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    // All searches of a Lazy SMP group, and this one's index in it (0 = main)
+    private Search[] group = {this};
+    private int threadIndex;
+    private Bitbases bitbases;
+
+    // Read by other threads of the group for reporting only, so a plain (not volatile) counter is enough
+    private long nodes;
+    private long nodeLimit;
+    // Volatile for ponderHit, which may come from another thread before or during run
+    private volatile TimeManager timer;
+    private volatile boolean ponderHit;
+    private volatile boolean stopped;
+
+    /**
+     * @param pos       root position, searched in place and restored afterwards
+     * @param history   keys of the positions since the last irreversible move, ending with the root
+     *                  (GameState.getReversibleKeys); may be empty
+     * @param halfmoveClock plies since the last capture or pawn move at the root, for the fifty-move rule;
+     *                  may exceed the history, e.g. for a position set up from a FEN
+     * @param evaluator leaf evaluation, used by this search only (see Evaluator.forThread)
+     * @param tt        transposition table, possibly shared with other searches
+     */
+    public Search(BitboardPosition pos, long[] history, int halfmoveClock, Evaluator evaluator, TranspositionTable tt) {
+        this.pos = pos;
+        this.evaluator = evaluator;
+        this.evaluator.reset(pos);
+        this.tt = tt;
+        this.rootIndex = Math.max(history.length - 1, 0);
+        this.keys = new long[rootIndex + MAX_PLY + 1];
+        System.arraycopy(history, 0, this.keys, 0, rootIndex);
+        this.keys[rootIndex] = pos.getZobristKey();
+        this.halfmove[0] = Math.max(halfmoveClock, 0);
+    }
+
+    /** Makes this search thread threadIndex of a Lazy SMP group; call before run. */
+    void joinGroup(Search[] group, int threadIndex) {
+        this.group = group;
+        this.threadIndex = threadIndex;
+    }
+
+    /** Probes the given bitbases (null for none) below the root; call before run. */
+    void useBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /** Runs the search once; a stop() requested before run starts still applies, so a Search is not reusable. */
+    public SearchResult run(SearchLimits limits, SearchListener listener) {
+        nodes = 0;
+        nodeLimit = limits.getNodes();
+        long start = System.nanoTime();
+        timer = new TimeManager(limits, start);
+        if (ponderHit) {
+            timer.ponderHit();
+        }
+        // A forced move gains nothing from thinking; depth 1 still yields a score for the listener
+        int maxDepth = limits.getDepth();
+        if (timer.isLimited() && MoveGenerator.generateLegalMoves(pos, moveLists[0]) == 1) {
+            maxDepth = 1;
+        }
+
+        int bestMove = Move.NONE;
+        SearchInfo info = null;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (isSkippedDepth(depth)) {
+                continue;
+            }
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break; // an interrupted iteration proves nothing; keep the previous one
+            }
+            int[] line = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, line, 0, line.length);
+            bestMove = line.length > 0 ? line[0] : Move.NONE;
+            info = new SearchInfo(depth, score, line, groupNodes(), System.nanoTime() - start);
+            if (listener != null) {
+                listener.onInfo(info);
+            }
+            // A forced mate found within the searched depth will not change with more depth
+            if (bestMove == Move.NONE || (info.isMate() && MATE - Math.abs(score) <= depth)) {
+                break;
+            }
+            if (timer.stopAfterIteration(bestMove, score)) {
+                break;
+            }
+        }
+        if (bestMove == Move.NONE) {
+            // Stopped before depth 1 completed: any legal move beats none
+            MoveList moves = moveLists[0];
+            if (MoveGenerator.generateLegalMoves(pos, moves) > 0) {
+                bestMove = moves.get(0);
+            }
+        }
+        return new SearchResult(bestMove, info);
+    }
+
+    /** Requests the search to stop as soon as possible; safe to call from any thread. */
+    public void stop() {
+        stopped = true;
+    }
+
+    /** Starts the time limits of a pondering search (see SearchLimits.ponder); safe to call from any thread. */
+    public void ponderHit() {
+        ponderHit = true;
+        TimeManager t = timer;
+        if (t != null) {
+            t.ponderHit();
+        }
+    }
+
+    /** Nodes searched by this thread so far; approximate when read from another thread during a search. */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    private long groupNodes() {
+        long total = 0;
+        for (Search search : group) {
+            total += search.getNodes();
+        }
+        return total;
+    }
+
+    private boolean shouldStop() {
+        return stopped || nodes >= nodeLimit
+            || ((nodes & (TimeManager.CHECK_INTERVAL - 1)) == 0 && timer.isHardExpired());
+    }
+
+    private boolean isSkippedDepth(int depth) {
+        if (threadIndex == 0 || depth == 1) {
+            return false;
+        }
+        int j = (threadIndex - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[j]) / SKIP_SIZE[j]) % 2 != 0;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (shouldStop()) {
+            stopped = true;
+            return 0;
+        }
+        nodes++;
+        if (ply > 0 && isDraw(ply)) {
+            return 0;
+        }
+        if (ply > 0 && bitbases != null && Long.bitCount(pos.getAllOccupancy()) <= Bitbases.MAX_PIECES) {
+            int wdl = bitbases.probeWdl(pos);
+            if (wdl != Bitbases.UNKNOWN) {
+                int mate = MATE - ply - bitbases.probeDtm(pos);
+                return wdl == Bitbases.WIN ? mate : wdl == Bitbases.LOSS ? -mate : 0;
+            }
+        }
+        if (depth == 0 || ply == MAX_PLY) {
+            return quiescence(alpha, beta, ply);
+        }
+
+        long key = pos.getZobristKey();
+        long entry = tt.probe(key);
+        int ttMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int ttScore = scoreFromTt(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                return ttScore;
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        int count = MoveGenerator.generateLegalMoves(pos, moves);
+        if (count == 0) {
+            // Mate scores are adjusted by ply so shorter mates score higher
+            return pos.isInCheck(pos.getSideToMove()) ? -MATE + ply : 0;
+        }
+        int previousMove = ply > 0 ? playedMoves[ply - 1] : Move.NONE;
+        orderer.score(pos, moves, ply, ttMove, previousMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = orderer.next(moves, ply, i);
+            playedMoves[ply] = move;
+            makeMove(move, ply);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        orderer.onCutoff(pos, moves, ply, i, depth, previousMove);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+            : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        tt.store(key, bound == TranspositionTable.BOUND_UPPER ? Move.NONE : bestMove, scoreToTt(best, ply), depth, bound);
+        return best;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (shouldStop()) {
+            stopped = true;
+            return 0;
+        }
+        nodes++;
+        boolean inCheck = pos.isInCheck(pos.getSideToMove());
+        if (ply == MAX_PLY) {
+            return inCheck ? 0 : evaluator.evaluate(pos);
+        }
+
+        int standPat = -INFINITY;
+        if (!inCheck) {
+            standPat = evaluator.evaluate(pos);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+
+        MoveList moves = moveLists[ply];
+        int count = inCheck ? MoveGenerator.generateLegalMoves(pos, moves) : MoveGenerator.generateLegalCaptures(pos, moves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : standPat;
+        }
+        orderer.score(pos, moves, ply, Move.NONE, Move.NONE);
+
+        int best = standPat;
+        for (int i = 0; i < count; i++) {
+            int move = orderer.next(moves, ply, i);
+            if (!inCheck) {
+                // Losing captures and underpromotions sort last, so nothing after the first one is worth it
+                if (!orderer.isGoodTactical(ply, i)) {
+                    break;
+                }
+                if (standPat + captureValue(move) + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+            }
+            makeMove(move, ply);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Material a capture or promotion wins at most, before any recapture. */
+    private int captureValue(int move) {
+        int value = 0;
+        if (Move.isEnPassant(move)) {
+            value = BitboardPosition.PIECE_VALUES[BitboardPosition.PAWN];
+        } else if (Move.isCapture(move)) {
+            value = BitboardPosition.PIECE_VALUES[BitboardPosition.typeOf(pos.pieceAt(Move.to(move)))];
+        }
+        if (Move.isPromotion(move)) {
+            value += BitboardPosition.PIECE_VALUES[Move.promotion(move)] - BitboardPosition.PIECE_VALUES[BitboardPosition.PAWN];
+        }
+        return value;
+    }
+
+    /** Mate scores are stored as distance from the node, so they stay valid wherever the node recurs. */
+    private static int scoreToTt(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int scoreFromTt(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    private void makeMove(int move, int ply) {
+        boolean irreversible = Move.isCapture(move) || BitboardPosition.typeOf(pos.pieceAt(Move.from(move))) == BitboardPosition.PAWN;
+        evaluator.beforeMakeMove(pos, move);
+        pos.makeMove(move);
+        keys[rootIndex + ply + 1] = pos.getZobristKey();
+        halfmove[ply + 1] = irreversible ? 0 : halfmove[ply] + 1;
+    }
+
+    private void unmakeMove(int move) {
+        pos.unmakeMove(move);
+        evaluator.afterUnmakeMove();
+    }
+
+    /** Fifty-move rule, or any earlier occurrence of this position since the last irreversible move. */
+    private boolean isDraw(int ply) {
+        if (halfmove[ply] >= 100) {
+            // Checkmate on the hundredth half-move still wins
+            return !pos.isInCheck(pos.getSideToMove()) || MoveGenerator.generateLegalMoves(pos, moveLists[ply]) > 0;
+        }
+        int index = rootIndex + ply;
+        long key = keys[index];
+        // Keys before the history are unknown, however long ago the last irreversible move was
+        for (int i = index - 4; i >= Math.max(index - halfmove[ply], 0); i -= 2) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+}
@@ -0,0 +1,70 @@
+package engine;
+
+import board.Move;
+
+/**
+ * Progress of a search after one completed iteration: depth, score, principal variation, node count and speed.
+ * Scores are centipawns from the side to move's view; mate scores are reported via isMate/getMateIn.
+ */
+public final class SearchInfo {
+    private final int depth;
+    private final int score;
+    private final int[] pv;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    SearchInfo(int depth, int score, int[] pv, long nodes, long elapsedNanos) {
+        this.depth = depth;
+        this.score = score;
+        this.pv = pv;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public int getScore() {
+        return this.score;
+    }
+
+    public boolean isMate() {
+        return Math.abs(this.score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /** Moves (not plies) to mate: positive if the side to move mates, negative if it gets mated. */
+    public int getMateIn() {
+        int plies = Search.MATE - Math.abs(this.score);
+        return this.score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    public int[] getPv() {
+        return this.pv.clone();
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public long getElapsedMillis() {
+        return this.elapsedNanos / 1_000_000;
+    }
+
+    public long getNodesPerSecond() {
+        return this.elapsedNanos > 0 ? this.nodes * 1_000_000_000L / this.elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(depth);
+        sb.append(isMate() ? " score mate " + getMateIn() : " score cp " + score);
+        sb.append(" nodes ").append(nodes).append(" nps ").append(getNodesPerSecond());
+        sb.append(" time ").append(getElapsedMillis()).append(" pv");
+        for (int move : pv) {
+            sb.append(' ').append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+}
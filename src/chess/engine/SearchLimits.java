@@ -0,0 +1,103 @@
+package engine;
+
+/**
+ * Limits for one search. Unset limits are unbounded; a search with no limit at all runs until stopped.
+ * Setters return this so limits can be chained: new SearchLimits().depth(8).nodes(1_000_000).
+ * Time is given either as a fixed time per move or as the side to move's clock (remaining time,
+ * increment, moves to the next time control), from which TimeManager budgets the move.
+ */
+public final class SearchLimits {
+    private int depth = Search.MAX_PLY;
+    private long nodes = Long.MAX_VALUE;
+    private long moveTimeMillis = -1;
+    private long remainingMillis = -1;
+    private long incrementMillis;
+    private int movesToGo;
+    private boolean ponder;
+
+    public SearchLimits depth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        this.depth = Math.min(depth, Search.MAX_PLY);
+        return this;
+    }
+
+    public SearchLimits nodes(long nodes) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("Node limit must be positive: " + nodes);
+        }
+        this.nodes = nodes;
+        return this;
+    }
+
+    /** Think for exactly this long (less a safety margin for communication). */
+    public SearchLimits moveTime(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Move time must not be negative: " + millis);
+        }
+        this.moveTimeMillis = millis;
+        return this;
+    }
+
+    /**
+     * Clock of the side to move: remaining time and increment per move, in milliseconds.
+     * Without movesToGo the rest of the game is assumed to be played on this clock (sudden death).
+     */
+    public SearchLimits clock(long remainingMillis, long incrementMillis) {
+        if (remainingMillis < 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("Clock times must not be negative: " + remainingMillis + ", " + incrementMillis);
+        }
+        this.remainingMillis = remainingMillis;
+        this.incrementMillis = incrementMillis;
+        return this;
+    }
+
+    /** Moves until the next time control adds time to the clock; 0 for none (sudden death). */
+    public SearchLimits movesToGo(int movesToGo) {
+        if (movesToGo < 0) {
+            throw new IllegalArgumentException("Moves to go must not be negative: " + movesToGo);
+        }
+        this.movesToGo = movesToGo;
+        return this;
+    }
+
+    /**
+     * Searches on the opponent's time, expecting the move it plays: time limits do not run until
+     * Engine.ponderHit confirms the move, and stop ends the search if it did not.
+     */
+    public SearchLimits ponder() {
+        this.ponder = true;
+        return this;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /** Fixed time per move in milliseconds, or -1 if not set. */
+    public long getMoveTime() {
+        return this.moveTimeMillis;
+    }
+
+    /** Remaining clock time in milliseconds, or -1 if the search is not on a clock. */
+    public long getRemaining() {
+        return this.remainingMillis;
+    }
+
+    public long getIncrement() {
+        return this.incrementMillis;
+    }
+
+    public int getMovesToGo() {
+        return this.movesToGo;
+    }
+
+    public boolean isPonder() {
+        return this.ponder;
+    }
+}
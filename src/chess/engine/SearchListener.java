@@ -0,0 +1,8 @@
+package engine;
+
+/**
+ * Receives progress reports from a running search, on the searching thread.
+ */
+public interface SearchListener {
+    void onInfo(SearchInfo info);
+}
@@ -0,0 +1,47 @@
+package engine;
+
+import board.Move;
+
+/**
+ * Outcome of a search: the best move (Move.NONE if the side to move has no legal move) and the last completed iteration.
+ */
+public final class SearchResult {
+    private final int bestMove;
+    private final SearchInfo info;
+    private final long[] threadNodes;
+
+    SearchResult(int bestMove, SearchInfo info) {
+        this(bestMove, info, new long[0]);
+    }
+
+    SearchResult(int bestMove, SearchInfo info, long[] threadNodes) {
+        this.bestMove = bestMove;
+        this.info = info;
+        this.threadNodes = threadNodes;
+    }
+
+    public int getBestMove() {
+        return this.bestMove;
+    }
+
+    /** Second move of the principal variation (the expected reply), or Move.NONE. */
+    public int getPonderMove() {
+        int[] pv = info != null ? info.getPv() : new int[0];
+        return pv.length > 1 ? pv[1] : Move.NONE;
+    }
+
+    /** Last completed iteration, or null if not even depth 1 completed. */
+    public SearchInfo getInfo() {
+        return this.info;
+    }
+
+    /** Nodes searched by each thread, main thread first; empty if not recorded. */
+    public long[] getThreadNodes() {
+        return this.threadNodes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "bestmove " + Move.toString(bestMove) + (info != null ? " (" + info + ")" : "");
+    }
+}
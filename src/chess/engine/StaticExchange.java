@@ -0,0 +1,84 @@
+package engine;
+
+import static board.BitboardPosition.*;
+
+import board.BitboardPosition;
+import board.Bitboards;
+import board.Move;
+
+/**
+ * Static exchange evaluation (SEE): the material outcome of a capture followed by the best sequence
+ * of recaptures on the same square, without searching.
+ * - Both sides always recapture with their least valuable attacker and may stop when continuing would lose.
+ * - Attackers come from one attackersTo set; as pieces leave the square's lines, sliders behind them
+ *   (x-rays) are added by recomputing the slider attacks with the reduced occupancy.
+ * - Pins and checks are ignored, except that a king never captures into a still-defended square.
+ * An instance keeps its scratch buffer, so one belongs to one search thread.
+ */
+final class StaticExchange {
+    // PIECE_VALUES with a king worth more than everything else, so losing it is never a good trade
+    private static final int[] VALUES = {100, 320, 330, 500, 900, 20000};
+
+    // Gain of the sequence stopped after each capture; 32 pieces bound the length
+    private final int[] gain = new int[32];
+
+    /** Material gain in centipawns for the side to move if it plays move (usually a capture); may be negative. */
+    int see(BitboardPosition pos, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        int attackerType = typeOf(pos.pieceAt(from));
+        long occupied = pos.getAllOccupancy() ^ Bitboards.bit(from);
+        if (Move.isEnPassant(move)) {
+            gain[0] = VALUES[PAWN];
+            occupied ^= Bitboards.bit(to + (pos.getSideToMove() == WHITE ? 8 : -8));
+        } else {
+            gain[0] = Move.isCapture(move) ? VALUES[typeOf(pos.pieceAt(to))] : 0;
+        }
+        if (Move.isPromotion(move)) {
+            gain[0] += VALUES[Move.promotion(move)] - VALUES[PAWN];
+            attackerType = Move.promotion(move);
+        }
+
+        long diagonal = pos.getPieces(WHITE, BISHOP) | pos.getPieces(BLACK, BISHOP)
+            | pos.getPieces(WHITE, QUEEN) | pos.getPieces(BLACK, QUEEN);
+        long straight = pos.getPieces(WHITE, ROOK) | pos.getPieces(BLACK, ROOK)
+            | pos.getPieces(WHITE, QUEEN) | pos.getPieces(BLACK, QUEEN);
+        long attackers = pos.attackersTo(to, occupied) & occupied;
+        int side = pos.getSideToMove() ^ 1;
+        int depth = 0;
+        while (true) {
+            long ours = attackers & pos.getOccupancy(side);
+            if (ours == 0) {
+                break;
+            }
+            int type = PAWN;
+            long candidates = ours & pos.getPieces(side, type);
+            while (candidates == 0) {
+                candidates = ours & pos.getPieces(side, ++type);
+            }
+            if (type == KING && (attackers & pos.getOccupancy(side ^ 1)) != 0) {
+                break; // the king cannot recapture into a defended square
+            }
+            depth++;
+            // Gain if this side recaptures: the piece just captured, minus what it had gained so far
+            gain[depth] = VALUES[attackerType] - gain[depth - 1];
+            attackerType = type;
+            occupied ^= Long.lowestOneBit(candidates);
+            if (type == PAWN || type == BISHOP || type == QUEEN) {
+                attackers |= Bitboards.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == ROOK || type == QUEEN) {
+                attackers |= Bitboards.rookAttacks(to, occupied) & straight;
+            }
+            attackers &= occupied;
+            side ^= 1;
+        }
+        // Each side may stop instead of recapturing: fold the sequence back from the end
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+}
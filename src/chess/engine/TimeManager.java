@@ -0,0 +1,108 @@
+package engine;
+
+/**
+ * TimeManager decides how long one search may think, from SearchLimits' move time or clock.
+ * - Soft deadline: the time the move should take. It is only checked between iterations, so an
+ *   iteration in progress is never wasted by it. It is shortened while the best move stays the same
+ *   from one iteration to the next and lengthened when the score drops, up to twice its base value.
+ * - Hard deadline: the search is stopped mid-iteration once it passes, so the clock cannot run out
+ *   whatever the soft deadline did. It leaves a quarter of the remaining time in reserve.
+ * - Both keep a margin (MOVE_OVERHEAD_MILLIS) for the time lost between the engine and the clock.
+ * - A move time without a clock is fixed: there is no soft deadline, the search runs to the hard one.
+ * Deadlines are measured with System.nanoTime from the start given to the constructor, or from
+ * ponderHit when pondering: until then no deadline passes.
+ */
+final class TimeManager {
+    static final long MOVE_OVERHEAD_MILLIS = 30;
+    // The search reads the clock once every CHECK_INTERVAL nodes (a power of two)
+    static final int CHECK_INTERVAL = 1024;
+
+    // Moves the remaining time is divided over when there is no time control to reach
+    private static final int SUDDEN_DEATH_MOVES = 30;
+    private static final int MAX_MOVES_TO_GO = 50;
+    // Soft deadline in percent of its base: a score drop of d centipawns since the last iteration adds
+    // d percent (up to MAX_DROP_PERCENT), each iteration with the same best move takes STABLE_STEP_PERCENT off
+    private static final int MAX_DROP_PERCENT = 100;
+    private static final int UNSTABLE_PERCENT = 120;
+    private static final int STABLE_STEP_PERCENT = 15;
+    private static final int MIN_STABLE_PERCENT = 50;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // Written by ponderHit from another thread
+    private volatile long start;
+    private volatile boolean pondering;
+    private final boolean limited;
+    private final boolean fixedTime;
+    private final long soft;
+    private final long hard;
+
+    private int previousBestMove;
+    private int previousScore;
+    private int stableIterations;
+    private boolean first = true;
+
+    TimeManager(SearchLimits limits, long start) {
+        this.start = start;
+        this.pondering = limits.isPonder();
+        long soft = Long.MAX_VALUE;
+        long hard = Long.MAX_VALUE;
+        if (limits.getMoveTime() >= 0) {
+            long moveTime = limits.getMoveTime();
+            soft = hard = Math.max(moveTime - MOVE_OVERHEAD_MILLIS, moveTime / 2);
+        }
+        if (limits.getRemaining() >= 0) {
+            long usable = Math.max(limits.getRemaining() - MOVE_OVERHEAD_MILLIS, 0);
+            int movesToGo = limits.getMovesToGo() > 0
+                ? Math.min(limits.getMovesToGo(), MAX_MOVES_TO_GO) : SUDDEN_DEATH_MOVES;
+            long clockHard = usable * 3 / 4;
+            long clockSoft = Math.min(usable / movesToGo + limits.getIncrement() * 3 / 4, clockHard);
+            hard = Math.min(hard, Math.min(clockSoft * 4, clockHard));
+            soft = Math.min(soft, clockSoft);
+        }
+        this.limited = hard != Long.MAX_VALUE;
+        this.fixedTime = limits.getMoveTime() >= 0 && limits.getRemaining() < 0;
+        this.soft = limited ? soft * NANOS_PER_MILLI : Long.MAX_VALUE;
+        this.hard = limited ? hard * NANOS_PER_MILLI : Long.MAX_VALUE;
+    }
+
+    /** Whether the limits set a time at all; without one the deadlines never pass. */
+    boolean isLimited() {
+        return limited;
+    }
+
+    /** Whether the hard deadline has passed; reads the clock, so call it every CHECK_INTERVAL nodes only. */
+    boolean isHardExpired() {
+        return limited && !pondering && System.nanoTime() - start >= hard;
+    }
+
+    /** Ends pondering: the deadlines start to run from now. Safe to call from any thread. */
+    void ponderHit() {
+        start = System.nanoTime();
+        pondering = false;
+    }
+
+    /**
+     * Records the result of a completed iteration and returns whether the search should stop rather
+     * than start the next one.
+     */
+    boolean stopAfterIteration(int bestMove, int score) {
+        if (!limited || fixedTime) {
+            return false;
+        }
+        int drop = 0;
+        if (first) {
+            first = false;
+        } else {
+            stableIterations = bestMove == previousBestMove ? stableIterations + 1 : 0;
+            drop = Math.min(Math.max(previousScore - score, 0), MAX_DROP_PERCENT);
+        }
+        previousBestMove = bestMove;
+        previousScore = score;
+
+        int stability = Math.max(UNSTABLE_PERCENT - STABLE_STEP_PERCENT * stableIterations, MIN_STABLE_PERCENT);
+        long percent = (long) stability * (100 + drop) / 100;
+        long budget = Math.min(soft / 100 * percent, hard);
+        return !pondering && System.nanoTime() - start >= budget;
+    }
+}
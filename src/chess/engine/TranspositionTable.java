@@ -0,0 +1,140 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable remembers search results by Zobrist key so repeated positions are not searched again.
+ * - The table is one long[] sized in megabytes at construction and never reallocated, so memory use is
+ *   fixed and probing or storing creates no garbage.
+ * - Entries are two longs, (key ^ data, data), where data packs move, score, depth, bound and age.
+ *   The table is shared by all search threads without locks: a torn or racing write leaves an entry whose
+ *   first word no longer XORs back to the key, and it reads as a miss.
+ * - Entries are grouped in buckets of four (one 64-byte cache line). A store replaces the entry for the
+ *   same key, else an empty one, else the entry with the lowest depth after an age penalty, so results
+ *   from earlier searches give way first.
+ */
+public final class TranspositionTable {
+    public static final int BOUND_UPPER = 1; // score <= stored score (failed low)
+    public static final int BOUND_LOWER = 2; // score >= stored score (failed high)
+    public static final int BOUND_EXACT = 3;
+
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int LONGS_PER_BUCKET = BUCKET_ENTRIES * 2;
+
+    // data layout: bits 0-18 move, 19-34 score + 32768, 35-42 depth, 43-44 bound, 45-50 age
+    private static final int SCORE_SHIFT = 19;
+    private static final int DEPTH_SHIFT = 35;
+    private static final int BOUND_SHIFT = 43;
+    private static final int AGE_SHIFT = 45;
+
+    private final long[] table;
+    private final long bucketMask;
+    private int age;
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("Hash size must be positive: " + megabytes);
+        }
+        long buckets = Long.highestOneBit(megabytes * (1L << 20) / (LONGS_PER_BUCKET * 8));
+        // Largest power of two whose long[] still fits in an int-indexed array (8 GB)
+        buckets = Math.min(buckets, 1L << 27);
+        this.table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        this.bucketMask = buckets - 1;
+    }
+
+    /** Starts a new search: entries stored from now on are newer than everything in the table. */
+    public void newSearch() {
+        this.age = (this.age + 1) & 63;
+    }
+
+    public void clear() {
+        Arrays.fill(this.table, 0L);
+        this.age = 0;
+    }
+
+    /** Returns the data word stored for the key, or 0 on a miss. Decode it with move/score/depth/bound. */
+    public long probe(long key) {
+        int base = (int) (key & bucketMask) * LONGS_PER_BUCKET;
+        for (int i = base; i < base + LONGS_PER_BUCKET; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a result. score must already be relative to this node (see Search for mate adjustment).
+     * If move is Move.NONE, the previous move for the same key is kept.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = (int) (key & bucketMask) * LONGS_PER_BUCKET;
+        int victim = base;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = base; i < base + LONGS_PER_BUCKET; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0) {
+                if (move == 0) {
+                    move = move(data);
+                }
+                victim = i;
+                break;
+            }
+            if (data == 0) {
+                victim = i;
+                victimValue = Integer.MIN_VALUE;
+                continue;
+            }
+            int value = depth(data) - 8 * ((age - age(data)) & 63);
+            if (value < victimValue) {
+                victim = i;
+                victimValue = value;
+            }
+        }
+        long data = (move & ((1L << SCORE_SHIFT) - 1))
+            | (long) (score + 32768) << SCORE_SHIFT
+            | (long) Math.max(depth, 0) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) age << AGE_SHIFT;
+        table[victim] = key ^ data;
+        table[victim + 1] = data;
+    }
+
+    /** Permille of sampled entries written during the current search (UCI "hashfull"). */
+    public int hashfull() {
+        int used = 0;
+        int samples = Math.min(1000, table.length / 2);
+        for (int i = 0; i < samples; i++) {
+            long data = table[2 * i + 1];
+            if (data != 0 && age(data) == age) {
+                used++;
+            }
+        }
+        return samples == 0 ? 0 : used * 1000 / samples;
+    }
+
+    public long sizeInBytes() {
+        return (long) table.length * 8;
+    }
+
+    public static int move(long data) {
+        return (int) (data & ((1L << SCORE_SHIFT) - 1));
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 63);
+    }
+}
@@ -1,130 +1,306 @@
 package game;
 
+import bitbase.Bitbases;
+import book.PolyglotBook;
+import board.BitboardPosition;
+import board.Bitboards;
 import board.ChessBoard;
+import board.Move;
+import board.MoveList;
+import board.MoveUndo;
 import board.Position;
+import board.PositionSnapshot;
+import board.Square;
 import pieces.PieceColor;
 import pieces.Piece;
 import pieces.Pawn;
-import pieces.Queen;
-// imports removed if unused
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class ChessGame {
     private ChessBoard board;
     private GameState state;
     private final List<String> moveHistory = new ArrayList<>();
-    // Simple undo stack capturing board + state + SAN moved
-    private final Deque<ChessBoard> boardHistory = new ArrayDeque<>();
-    private final Deque<GameState> stateHistory = new ArrayDeque<>();
-    private final Deque<String> sanHistory = new ArrayDeque<>();
+    // Undo/redo journal, one packed long per ply (see journalEntry); entries past journalSize can be redone
+    private long[] journal = new long[64];
+    private int journalSize;
+    private int redoLimit;
+    // The double push implied by a set-up position's en passant square (Move.NONE if none), the last move
+    // once every journalled move has been undone
+    private int setUpMove = Move.NONE;
+    // Legal moves of the side to move and whether it is in check, refreshed once per ply by updateGameStatus
+    private final MoveList legalMoves = new MoveList();
+    private boolean inCheck;
+    // Immutable view of the current position, republished after every move, undo and reset
+    private volatile PositionSnapshot snapshot;
+    private Bitbases bitbases;
 
     public ChessGame() {
         resetGame();
     }
 
-    public boolean makeMove(Position a, Position b) {
+    public MoveResult makeMove(Position a, Position b) {
         // Delegate to overload with default (null) promotion type which becomes Queen
         return makeMove(a, b, null);
     }
 
+    /**
+     * Makes an int-encoded move (see board.Move), e.g. one chosen by an engine.
+     */
+    public MoveResult makeMove(int move) {
+        return makeMove(Bitboards.position(Move.from(move)), Bitboards.position(Move.to(move)), Move.promotionClass(move));
+    }
+
     /**
      * Makes a move and, if promotion occurs, promotes to the specified piece type.
      * If promotionType is null, defaults to Queen.
+     * The move is looked up in this ply's cached legal moves; everything else (special-move handling,
+     * SAN, status) follows from the encoded move and the next ply's cache.
      */
-    public boolean makeMove(Position a, Position b, Class<? extends Piece> promotionType) {
-        if (!MoveValidator.isValidMove(board, a, b, this.state.getCurrentPlayer(), this.state)) {
-            return false;
+    public MoveResult makeMove(Position a, Position b, Class<? extends Piece> promotionType) {
+        int move = findLegalMove(a, b, promotionType);
+        if (move == Move.NONE) {
+            return MoveResult.ILLEGAL;
         }
 
-    // Snapshot for undo
-    boardHistory.push(this.board.copy());
-    stateHistory.push(this.state.copy());
-
-        // Check if this is a pawn move that will result in promotion
+        // Special flags and capture come straight from the encoded move
         Piece movingPiece = board.getPiece(a);
-        boolean willPromote = false;
-        if (movingPiece instanceof Pawn) {
-            int promotionRow = movingPiece.getColor() == PieceColor.WHITE ? 0 : 7;
-            if (b.getRow() == promotionRow) {
-                willPromote = true;
-            }
-        }
-
-    // Determine special flags and capture before mutating the board
-        boolean isCastle = MoveValidator.isCastlingMove(board, a, b);
-        boolean isEnPassant = MoveValidator.isEnPassantMove(board, a, b, this.state);
-        boolean isCapture = false;
-        if (!isCastle && !isEnPassant) {
-            Piece destBefore = board.getPiece(b);
-            isCapture = (destBefore != null && destBefore.getColor() != this.state.getCurrentPlayer());
-        } else if (isEnPassant) {
-            isCapture = true;
-        }
-
-        // Handle special moves
-        if (isCastle) {
-            board.performCastling(a, b);
-        } else if (isEnPassant) {
-            Position capturedPawnPos = this.state.getLastMoveTo();
-            board.performEnPassant(a, b, capturedPawnPos);
-        } else {
-            // Regular move
-            this.board.movePiece(a, b);
-        }
+        boolean isCastle = Move.isCastle(move);
+        boolean isCapture = Move.isCapture(move);
+        Class<? extends Piece> promoTypeUsed = Move.isPromotion(move) ? Move.promotionClass(move) : null;
+        // Disambiguation needs the other legal moves of this ply, so take it before they are replaced
+        String disambiguation = MoveNotation.disambiguation(board, legalMoves, move);
 
-        // Handle pawn promotion using provided type or default to Queen
-        if (willPromote) {
-            Class<? extends Piece> type = (promotionType != null) ? promotionType : Queen.class;
-            board.promotePawn(b, type);
+        // Castling, en passant and promotion are handled by the board; journal what the move destroys
+        MoveUndo undo = board.makeMove(a, b, promoTypeUsed);
+        if (journalSize == journal.length) {
+            journal = Arrays.copyOf(journal, journalSize * 2);
         }
+        journal[journalSize++] = journalEntry(move, undo, state);
+        redoLimit = journalSize;
 
     // Track the move for en passant detection
         this.state.setLastMove(a, b);
-    // Compute check/mate on the post-move board for SAN suffix
-    boolean givesCheck = MoveValidator.isKingInCheck(board, this.state.getCurrentPlayer());
-    boolean givesMate = MoveValidator.isCheckmate(board, this.state.getCurrentPlayer(), this.state);
-    Class<? extends Piece> promoTypeUsed = (willPromote ? (promotionType != null ? promotionType : Queen.class) : null);
-    String san = MoveNotation.san(this.board, this.state, movingPiece, a, b, isCastle, isEnPassant, isCapture, promoTypeUsed, givesCheck, givesMate);
-    moveHistory.add(san);
-    sanHistory.push(san);
+        this.state.setEnPassantFile(enPassantFile(move));
         this.state.nextTurn();
+        this.state.recordPosition(getPositionKey(), isCapture || movingPiece instanceof Pawn);
+        this.snapshot = this.snapshot.apply(move);
+        // Regenerates the legal moves of the side now to move; check and mate follow from them
         updateGameStatus();
-        return true;
+        boolean givesMate = state.getStatus() == GameState.Status.CHECKMATE;
+    String san = MoveNotation.san(movingPiece, a, b, isCastle, isCapture, promoTypeUsed, disambiguation, inCheck, givesMate);
+    moveHistory.add(san);
+        return new MoveResult(move, san, inCheck, givesMate, state.getStatus());
     }
     
+    /**
+     * Finds the legal move matching from/to (and the promotion piece, Queen if null) among the
+     * cached legal moves, or Move.NONE if there is none.
+     */
+    private int findLegalMove(Position from, Position to, Class<? extends Piece> promotionType) {
+        int fromSq = Bitboards.square(from);
+        int toSq = Bitboards.square(to);
+        int promotion = Move.promotionType(promotionType);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (Move.from(move) == fromSq && Move.to(move) == toSq
+                && (!Move.isPromotion(move) || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /** True if the side to move can play from -> to (any promotion piece). */
+    public boolean isLegalMove(Position from, Position to) {
+        return (getLegalTargetBits(from) & Bitboards.bit(Bitboards.square(to))) != 0;
+    }
+
+    /** Legal destinations of the piece on the given square, from this ply's cache. */
+    public List<Position> getLegalTargets(Position from) {
+        return Bitboards.positions(getLegalTargetBits(from));
+    }
+
+    /**
+     * Legal moves of the side to move, generated once per ply. The list is owned by the game and
+     * is refilled after every move, undo and reset; do not modify it.
+     */
+    public MoveList getLegalMoves() {
+        return this.legalMoves;
+    }
+
+    /**
+     * A move for the side to move from an opening book, chosen at random by the book's weights among
+     * this ply's legal moves, or Move.NONE when the position is not in the book. Play it with makeMove(int).
+     */
+    public int getBookMove(PolyglotBook book, Random random) {
+        return book.chooseMove(this.snapshot.toBitboardPosition(), this.legalMoves, random);
+    }
+
+    /**
+     * Endgame bitbases (null for none). While a game they cover is running, their best-play outcome is
+     * part of the status (GameState.getVerdict).
+     */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+        updateGameStatus();
+    }
+
+    /** True if the side to move is in check. */
+    public boolean isInCheck() {
+        return this.inCheck;
+    }
+
+    private long getLegalTargetBits(Position from) {
+        int fromSq = Bitboards.square(from);
+        long res = 0L;
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (Move.from(move) == fromSq) {
+                res |= Bitboards.bit(Move.to(move));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * File to hash for en passant after a move: the double-pushed pawn's file when an enemy pawn
+     * stands beside it, otherwise -1.
+     */
+    private int enPassantFile(int move) {
+        if (!Move.isDoublePush(move)) {
+            return -1;
+        }
+        Position to = Bitboards.position(Move.to(move));
+        PieceColor mover = board.getPiece(to).getColor();
+        for (int dc = -1; dc <= 1; dc += 2) {
+            Square side = board.getSquare(to.getRow(), to.getCol() + dc);
+            Piece piece = side != null ? side.getPiece() : null;
+            if (piece instanceof Pawn && piece.getColor() != mover) {
+                return to.getCol();
+            }
+        }
+        return -1;
+    }
+
+    /** Zobrist key of the current position (placement, castling, en passant file, side to move). */
+    public long getPositionKey() {
+        return this.state.positionKey(this.board);
+    }
+
+    /**
+     * Fills the legal-move cache for the side to move, then derives the status from it:
+     * no legal moves means mate or stalemate, so no separate checkmate/stalemate queries are needed.
+     */
     private void updateGameStatus() {
         PieceColor currentPlayer = state.getCurrentPlayer();
+        int count = MoveValidator.generateLegalMoves(board, currentPlayer, state, legalMoves);
+        inCheck = MoveValidator.isKingInCheck(board, currentPlayer);
+        // Dead positions end at once
+        if (board.isInsufficientMaterial()) {
+            state.setDraw("insufficient material");
+        }
         // Check for checkmate first
-        if (MoveValidator.isCheckmate(board, currentPlayer, state)) {
+        else if (count == 0 && inCheck) {
             state.setStatus(GameState.Status.CHECKMATE);
         }
         // Check for stalemate
-        else if (MoveValidator.isStalemate(board, currentPlayer, state)) {
+        else if (count == 0) {
             state.setStatus(GameState.Status.STALEMATE);
         }
+        // Draws by rule; mate and stalemate on the same move take precedence
+        else if (state.isFiftyMoveRule()) {
+            state.setDraw("fifty-move rule");
+        }
+        else if (state.isThreefoldRepetition()) {
+            state.setDraw("threefold repetition");
+        }
         // Check for check
-        else if (MoveValidator.isKingInCheck(board, currentPlayer)) {
+        else if (inCheck) {
             state.setStatus(GameState.Status.CHECK);
         }
         // Normal playing state
         else {
             state.setStatus(GameState.Status.PLAYING);
         }
+        state.setVerdict(state.isGameOver() ? null : bitbaseVerdict());
+    }
+
+    // Outcome with best play in words, or null without bitbases covering the position
+    private String bitbaseVerdict() {
+        if (bitbases == null) {
+            return null;
+        }
+        BitboardPosition pos = snapshot.toBitboardPosition();
+        int wdl = bitbases.probeWdl(pos);
+        if (wdl == Bitbases.UNKNOWN) {
+            return null;
+        }
+        if (wdl == Bitbases.DRAW) {
+            return "Drawn with best play";
+        }
+        boolean whiteWins = (wdl == Bitbases.WIN) == (state.getCurrentPlayer() == PieceColor.WHITE);
+        return (whiteWins ? "White" : "Black") + " mates in " + (bitbases.probeDtm(pos) + 1) / 2;
     }
 
     public void resetGame() {
         this.board = new ChessBoard();
         this.state = new GameState();
     this.moveHistory.clear();
-    this.boardHistory.clear();
-    this.stateHistory.clear();
-    this.sanHistory.clear();
+        this.journalSize = 0;
+        this.redoLimit = 0;
+        this.setUpMove = Move.NONE;
+        this.state.recordPosition(getPositionKey(), true);
+        publishSnapshot();
         updateGameStatus(); // Set initial game status
     }
 
+    /**
+     * Starts a new game from a FEN position; throws IllegalArgumentException on malformed input.
+     * Castling rights become the hasMoved flags of kings and rooks, and an en passant square becomes
+     * the last move (the double push), so the game continues as if the position had been played to.
+     * Moves before the position are unknown: repetitions are only counted from here.
+     */
+    public void resetGame(String fen) {
+        PositionSnapshot setUp = PositionSnapshot.fromFen(fen);
+        BitboardPosition pos = setUp.toBitboardPosition();
+        int side = pos.getSideToMove();
+        this.board = pos.toChessBoard();
+        this.state = new GameState();
+        this.state.setUp(BitboardPosition.pieceColor(side), 2 * (setUp.getFullmoveNumber() - 1) + side,
+            setUp.getHalfmoveClock());
+        this.setUpMove = Move.NONE;
+        if (pos.getEpSquare() != BitboardPosition.NO_SQUARE) {
+            // The pawn that just double-pushed stands one row beyond the en passant square
+            int forward = side == BitboardPosition.WHITE ? 8 : -8;
+            int doublePush = Move.of(pos.getEpSquare() - forward, pos.getEpSquare() + forward, Move.DOUBLE_PUSH);
+            this.state.setLastMove(Bitboards.position(Move.from(doublePush)), Bitboards.position(Move.to(doublePush)));
+            this.state.setEnPassantFile(enPassantFile(doublePush));
+            this.setUpMove = doublePush;
+        }
+        this.moveHistory.clear();
+        this.journalSize = 0;
+        this.redoLimit = 0;
+        this.state.recordPosition(getPositionKey(), false);
+        publishSnapshot();
+        updateGameStatus();
+    }
+
+    /**
+     * Immutable snapshot of the current position. Safe to keep or read from any thread; it does not
+     * change when the game moves on (fetch a new one instead).
+     */
+    public PositionSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    private void publishSnapshot() {
+        BitboardPosition pos = BitboardPosition.from(board, state.getCurrentPlayer(), state);
+        this.snapshot = PositionSnapshot.of(pos, state.getHalfmoveClock(), state.getMoveCount() / 2 + 1);
+    }
+
     public ChessBoard getBoard() {
         return this.board;
     }
@@ -138,23 +314,66 @@ public class ChessGame {
     }
 
     // ---------- Undo Support ----------
+    // Journal entry layout: bits 0-18 move, 19-22 captured piece code + 1 (0 = none), 23 captured hasMoved,
+    // 24 moved hasMoved, 25-28 previous en passant file + 1, 32-63 previous halfmove clock
+    private static final long MOVE_MASK = (1L << 19) - 1;
+
+    private static long journalEntry(int move, MoveUndo undo, GameState state) {
+        Piece captured = undo.getCapturedPiece();
+        long entry = move & MOVE_MASK;
+        if (captured != null) {
+            int code = BitboardPosition.pieceCode(BitboardPosition.colorOf(captured.getColor()), BitboardPosition.typeOf(captured));
+            entry |= (long) (code + 1) << 19;
+            entry |= captured.getHasMoved() ? 1L << 23 : 0L;
+        }
+        entry |= undo.getMovedHadMoved() ? 1L << 24 : 0L;
+        entry |= (long) (state.getEnPassantFile() + 1) << 25;
+        entry |= (long) state.getHalfmoveClock() << 32;
+        return entry;
+    }
+
     public boolean canUndo() {
-        return !boardHistory.isEmpty() && !stateHistory.isEmpty();
+        return journalSize > 0;
     }
 
+    public boolean canRedo() {
+        return journalSize < redoLimit;
+    }
+
+    /**
+     * Takes back the last move in place: the board and state objects stay the same, so references
+     * held by the GUI or other callers remain valid. The move can be replayed with redoMove.
+     */
     public boolean undoLastMove() {
         if (!canUndo()) return false;
-        // Restore previous board and state
-        this.board = boardHistory.pop();
-        this.state = stateHistory.pop();
-        // Remove last SAN entry (both from stack and list)
-        if (!sanHistory.isEmpty()) sanHistory.pop();
+        long entry = journal[--journalSize];
+        int move = (int) (entry & MOVE_MASK);
+        int captured = (int) ((entry >>> 19) & 0xF) - 1;
+        board.unmakeMove(move, captured, (entry & (1L << 23)) != 0, (entry & (1L << 24)) != 0);
+        Position lastFrom = null;
+        Position lastTo = null;
+        int previous = journalSize > 0 ? (int) (journal[journalSize - 1] & MOVE_MASK) : setUpMove;
+        if (previous != Move.NONE) {
+            lastFrom = Bitboards.position(Move.from(previous));
+            lastTo = Bitboards.position(Move.to(previous));
+        }
+        state.previousTurn((int) ((entry >>> 25) & 0xF) - 1, (int) (entry >>> 32), lastFrom, lastTo);
         if (!moveHistory.isEmpty()) moveHistory.remove(moveHistory.size() - 1);
-        // Recompute status just in case
+        publishSnapshot();
+        // Recompute status and the legal-move cache
         updateGameStatus();
         return true;
     }
 
+    /** Replays the most recently undone move. */
+    public boolean redoMove() {
+        if (!canRedo()) return false;
+        int limit = redoLimit;
+        makeMove((int) (journal[journalSize] & MOVE_MASK));
+        redoLimit = limit;
+        return true;
+    }
+
     /**
      * Returns move pairs with numbering like: "1. e4   e5".
      * If a black move is missing (odd count), the black side is blank.
@@ -4,10 +4,19 @@ package game;
  * GameState holds turn, status, move count, and last move.
  * - Status reflects PLAYING, CHECK, CHECKMATE, STALEMATE, or DRAW.
  * - lastMoveFrom/To are used for last-move highlights and en passant detection.
+ * - zobristKey hashes the side to move and en passant file; the board hashes the rest.
+ * - halfmoveClock counts moves since the last capture or pawn move (fifty-move rule).
+ * - keyHistory holds one position key per ply; threefold repetition scans only the last
+ *   halfmoveClock + 1 keys, since positions before an irreversible move can never recur.
+ * - verdict is the best-play outcome of a running game when endgame bitbases know it.
  */
 
+import java.util.Arrays;
+
 import pieces.PieceColor;
+import board.ChessBoard;
 import board.Position;
+import board.Zobrist;
 
 public class GameState {
     public enum Status {
@@ -19,6 +28,14 @@ public class GameState {
     private int moveCount;
     private Position lastMoveFrom;
     private Position lastMoveTo;
+    // Zobrist part owned by the state: side to move and en passant file (see board.Zobrist)
+    private long zobristKey;
+    private int enPassantFile;
+    private int halfmoveClock;
+    private long[] keyHistory;
+    private int historySize;
+    private String drawReason;
+    private String verdict;
 
     public GameState() {
         this.currPlayer = PieceColor.WHITE;
@@ -26,6 +43,25 @@ public class GameState {
         moveCount = 0;
         this.lastMoveFrom = null;
         this.lastMoveTo = null;
+        this.zobristKey = 0L;
+        this.enPassantFile = -1;
+        this.halfmoveClock = 0;
+        this.keyHistory = new long[16];
+        this.historySize = 0;
+    }
+
+    /**
+     * Starts from a set-up position (e.g. a FEN) instead of the initial one: the side to move, the plies
+     * played before it (as counted by nextTurn) and its halfmove clock. Call on a new state, then record
+     * the position with recordPosition(key, false), which counts it as the clock's last ply.
+     */
+    public void setUp(PieceColor sideToMove, int moveCount, int halfmoveClock) {
+        if (sideToMove != this.currPlayer) {
+            this.currPlayer = sideToMove;
+            this.zobristKey ^= Zobrist.BLACK_TO_MOVE;
+        }
+        this.moveCount = moveCount;
+        this.halfmoveClock = halfmoveClock - 1;
     }
 
     public PieceColor getCurrentPlayer() {
@@ -47,6 +83,114 @@ public class GameState {
     public void nextTurn() {
         this.currPlayer = currPlayer.opposite();
         ++this.moveCount;
+        this.zobristKey ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Sets the en passant file to hash (-1 for none). Only set a file when a pawn of the player
+     * about to move could capture there, to match BitboardPosition's key.
+     */
+    public void setEnPassantFile(int file) {
+        this.zobristKey ^= Zobrist.enPassant(this.enPassantFile) ^ Zobrist.enPassant(file);
+        this.enPassantFile = file;
+    }
+
+    public int getEnPassantFile() {
+        return this.enPassantFile;
+    }
+
+    /** Zobrist key of the side to move and en passant file. */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    /** Full position key: the board's placement and castling key combined with this state's part. */
+    public long positionKey(ChessBoard board) {
+        return board.getZobristKey() ^ this.zobristKey;
+    }
+
+    /**
+     * Records the key of the position just reached. An irreversible move (capture or pawn move)
+     * resets the halfmove clock.
+     */
+    public void recordPosition(long key, boolean irreversible) {
+        this.halfmoveClock = irreversible ? 0 : this.halfmoveClock + 1;
+        if (this.historySize == this.keyHistory.length) {
+            this.keyHistory = Arrays.copyOf(this.keyHistory, this.historySize * 2);
+        }
+        this.keyHistory[this.historySize++] = key;
+    }
+
+    /**
+     * Reverses nextTurn and recordPosition for an undone move, restoring the en passant file,
+     * halfmove clock and last move from before it.
+     */
+    public void previousTurn(int enPassantFile, int halfmoveClock, Position lastMoveFrom, Position lastMoveTo) {
+        this.currPlayer = currPlayer.opposite();
+        --this.moveCount;
+        this.zobristKey ^= Zobrist.BLACK_TO_MOVE;
+        setEnPassantFile(enPassantFile);
+        this.halfmoveClock = halfmoveClock;
+        --this.historySize;
+        this.lastMoveFrom = lastMoveFrom;
+        this.lastMoveTo = lastMoveTo;
+    }
+
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    /**
+     * Keys of the positions since the last irreversible move, oldest first, ending with the current
+     * position. These are the only earlier positions a search from here can repeat.
+     */
+    public long[] getReversibleKeys() {
+        int oldest = Math.max(0, this.historySize - 1 - this.halfmoveClock);
+        return Arrays.copyOfRange(this.keyHistory, oldest, this.historySize);
+    }
+
+    /** True once 50 moves by each side have passed without a capture or pawn move. */
+    public boolean isFiftyMoveRule() {
+        return this.halfmoveClock >= 100;
+    }
+
+    /**
+     * True if the current position occurred at least twice before. Only positions with the same
+     * side to move can match, so every other key is compared.
+     */
+    public boolean isThreefoldRepetition() {
+        if (this.halfmoveClock < 4) {
+            return false;
+        }
+        long current = this.keyHistory[this.historySize - 1];
+        int oldest = Math.max(0, this.historySize - 1 - this.halfmoveClock);
+        int count = 1;
+        for (int i = this.historySize - 3; i >= oldest; i -= 2) {
+            if (this.keyHistory[i] == current && ++count == 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Ends the game as a draw for the given reason (e.g. "threefold repetition"). */
+    public void setDraw(String reason) {
+        this.gameStatus = Status.DRAW;
+        this.drawReason = reason;
+    }
+
+    /** Why the game is drawn, or null when the status is not DRAW. */
+    public String getDrawReason() {
+        return this.gameStatus == Status.DRAW ? this.drawReason : null;
+    }
+
+    /** Known outcome of the running game with best play (e.g. "White mates in 5"), or null if unknown. */
+    public void setVerdict(String verdict) {
+        this.verdict = verdict;
+    }
+
+    public String getVerdict() {
+        return this.verdict;
     }
 
     public void setLastMove(Position from, Position to) {
@@ -84,15 +228,22 @@ public class GameState {
             return "Draw by stalemate";
         }
         if (this.gameStatus == Status.DRAW) {
-            return "Draw.";
+            return "Draw by " + getDrawReason() + ".";
         }
         if (this.gameStatus == Status.CHECK) {
             if (this.currPlayer == PieceColor.WHITE) {
-                return "Game is running. Black is in check";
+                return withVerdict("Game is running. Black is in check");
             }
-            return "Game is running. White is in check";
+            return withVerdict("Game is running. White is in check");
+        }
+        return withVerdict("Game is running.");
+    }
+
+    private String withVerdict(String message) {
+        if (this.verdict == null) {
+            return message;
         }
-        return "Game is running.";
+        return message + (message.endsWith(".") ? " " : ". ") + this.verdict + ".";
     }
 
     /**
@@ -103,6 +254,13 @@ public class GameState {
         gs.currPlayer = this.currPlayer; // enum copy
         gs.gameStatus = this.gameStatus; // enum copy
         gs.moveCount = this.moveCount;
+        gs.zobristKey = this.zobristKey;
+        gs.enPassantFile = this.enPassantFile;
+        gs.halfmoveClock = this.halfmoveClock;
+        gs.keyHistory = Arrays.copyOf(this.keyHistory, Math.max(this.historySize, 16));
+        gs.historySize = this.historySize;
+        gs.drawReason = this.drawReason;
+        gs.verdict = this.verdict;
         if (this.lastMoveFrom != null) {
             gs.lastMoveFrom = new Position(this.lastMoveFrom.getRow(), this.lastMoveFrom.getCol());
         }
@@ -1,9 +1,11 @@
 package game;
 
+import board.Bitboards;
 import board.ChessBoard;
+import board.Move;
+import board.MoveList;
 import board.Position;
 import pieces.*;
-import java.util.List;
 
 /** Utility to format moves in Standard Algebraic Notation (SAN). */
 public final class MoveNotation {
@@ -26,19 +28,17 @@ public final class MoveNotation {
     }
 
     /**
-     * Generate SAN for a move, given the pre-move board/state and flags computed pre/post move.
-     * - Disambiguation is computed on the pre-move board (other same pieces that could also reach 'to').
+     * Generate SAN for a move from flags computed pre/post move.
+     * - disambiguation comes from disambiguation(...) on the pre-move board and legal moves.
      * - Check/Checkmate markers (+/#) should be computed on the post-move board and passed in.
      */
-    public static String san(ChessBoard preBoard,
-                             GameState preState,
-                             Piece movingPiece,
+    public static String san(Piece movingPiece,
                              Position from,
                              Position to,
                              boolean isCastle,
-                             boolean isEnPassant,
                              boolean isCapture,
                              Class<? extends Piece> promotionType,
+                             String disambiguation,
                              boolean givesCheck,
                              boolean givesMate) {
 
@@ -54,8 +54,7 @@ public final class MoveNotation {
 
         // Disambiguation for non-pawn moves
         if (!isPawn) {
-            String dis = disambiguation(preBoard, preState, movingPiece, from, to);
-            sb.append(dis);
+            sb.append(disambiguation);
         }
 
         // Captures
@@ -87,20 +86,27 @@ public final class MoveNotation {
         return sb.toString();
     }
 
-    private static String disambiguation(ChessBoard board, GameState state, Piece movingPiece, Position from, Position to) {
-        List<Piece> sameTypePieces = board.getAllPieces(movingPiece.getColor());
+    /**
+     * File, rank, both or nothing, as needed to tell the move apart from other legal moves of
+     * same-type pieces to the same square. Reads the pre-move board and that ply's legal moves.
+     */
+    public static String disambiguation(ChessBoard board, MoveList legalMoves, int move) {
+        Position from = Bitboards.position(Move.from(move));
+        Piece movingPiece = board.getPiece(from);
+        boolean ambiguous = false;
         boolean anySameFile = false;
         boolean anySameRank = false;
-        for (Piece p : sameTypePieces) {
-            if (p == movingPiece) continue;
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int other = legalMoves.get(i);
+            if (Move.to(other) != Move.to(move) || Move.from(other) == Move.from(move)) continue;
+            Piece p = board.getPiece(Bitboards.position(Move.from(other)));
             if (!p.getClass().equals(movingPiece.getClass())) continue;
-            // Can this other piece also legally move to 'to'?
-            if (MoveValidator.isValidMove(board, p.getPosition(), to, movingPiece.getColor(), state)) {
-                if (p.getPosition().getCol() == from.getCol()) anySameFile = true;
-                if (p.getPosition().getRow() == from.getRow()) anySameRank = true;
-            }
+            // This other piece can also legally move to 'to'
+            ambiguous = true;
+            if ((Move.from(other) & 7) == from.getCol()) anySameFile = true;
+            if ((Move.from(other) >>> 3) == from.getRow()) anySameRank = true;
         }
-        if (!anySameFile && !anySameRank) return ""; // no ambiguity
+        if (!ambiguous) return "";
         if (!anySameFile) {
             // Unique file of from distinguishes
             return String.valueOf((char)('a' + from.getCol()));
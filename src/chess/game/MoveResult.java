@@ -0,0 +1,85 @@
+package game;
+
+/**
+ * MoveResult is what ChessGame.makeMove reports about one move, so callers never re-derive it:
+ * the int-encoded move (see board.Move), its SAN, the special-move flags, whether it gives check
+ * or mate, and the game status afterwards. Rejected moves return the shared ILLEGAL result.
+ */
+
+import board.Bitboards;
+import board.Move;
+import board.Position;
+import pieces.Piece;
+
+public final class MoveResult {
+    public static final MoveResult ILLEGAL = new MoveResult(Move.NONE, null, false, false, null);
+
+    private final int move;
+    private final String san;
+    private final boolean check;
+    private final boolean checkmate;
+    private final GameState.Status status;
+
+    MoveResult(int move, String san, boolean check, boolean checkmate, GameState.Status status) {
+        this.move = move;
+        this.san = san;
+        this.check = check;
+        this.checkmate = checkmate;
+        this.status = status;
+    }
+
+    public boolean isLegal() {
+        return this.move != Move.NONE;
+    }
+
+    public int getMove() {
+        return this.move;
+    }
+
+    public Position getFrom() {
+        return Bitboards.position(Move.from(this.move));
+    }
+
+    public Position getTo() {
+        return Bitboards.position(Move.to(this.move));
+    }
+
+    public String getSan() {
+        return this.san;
+    }
+
+    public boolean isCapture() {
+        return Move.isCapture(this.move);
+    }
+
+    public boolean isCastle() {
+        return Move.isCastle(this.move);
+    }
+
+    public boolean isEnPassant() {
+        return Move.isEnPassant(this.move);
+    }
+
+    /** Promotion piece class, or null if the move is not a promotion. */
+    public Class<? extends Piece> getPromotion() {
+        return Move.isPromotion(this.move) ? Move.promotionClass(this.move) : null;
+    }
+
+    public boolean isCheck() {
+        return this.check;
+    }
+
+    public boolean isCheckmate() {
+        return this.checkmate;
+    }
+
+    /** Game status after the move (null for ILLEGAL). */
+    public GameState.Status getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public String toString() {
+        return isLegal() ? this.san : "illegal";
+    }
+}
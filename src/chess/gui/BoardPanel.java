@@ -8,7 +8,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import game.ChessGame;
-import game.MoveValidator;
 import game.GameState;
 import pieces.Piece;
 import pieces.PieceColor;
@@ -101,8 +100,7 @@ public class BoardPanel extends JPanel {
             highlightSquare(position, true);
             
             // Get and highlight legal moves for this piece
-            legalMoves = MoveValidator.getLegalMoves(chessGame.getBoard(), position, 
-                chessGame.getGameState().getCurrentPlayer(), chessGame.getGameState());
+            legalMoves = chessGame.getLegalTargets(position);
             highlightLegalMoves(true);
         }
         // Ignore clicks on empty squares or opponent pieces
@@ -150,7 +148,7 @@ public class BoardPanel extends JPanel {
             }
         }
 
-        return chessGame.makeMove(from, to, promotionType);
+        return chessGame.makeMove(from, to, promotionType).isLegal();
     }
 
     private Class<? extends Piece> promptPromotionPiece() {
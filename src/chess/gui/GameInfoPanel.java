@@ -15,6 +15,7 @@ public class GameInfoPanel extends JPanel {
     private DefaultListModel<String> moveListModel;
     private JList<String> moveList;
     private JButton undoButton;
+    private JButton redoButton;
     
     public GameInfoPanel(ChessGame chessGame) {
         this.chessGame = chessGame;
@@ -71,24 +72,27 @@ public class GameInfoPanel extends JPanel {
         add(moveLabel);
         add(Box.createVerticalStrut(10));
 
-        // Undo button
+        // Undo / redo buttons
         undoButton = new JButton("Undo");
-        undoButton.setAlignmentX(Component.LEFT_ALIGNMENT);
         undoButton.addActionListener(e -> {
             if (chessGame.undoLastMove()) {
-                // Refresh the main UI on EDT
-                SwingUtilities.invokeLater(() -> {
-                    Container top = SwingUtilities.getWindowAncestor(this);
-                    if (top instanceof ChessGUI) {
-                        ((ChessGUI) top).updateDisplay();
-                    } else {
-                        // Fallback: refresh this panel directly
-                        updateDisplay();
-                    }
-                });
+                refreshAll();
             }
         });
-        add(undoButton);
+        redoButton = new JButton("Redo");
+        redoButton.addActionListener(e -> {
+            if (chessGame.redoMove()) {
+                refreshAll();
+            }
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        buttons.setOpaque(false);
+        buttons.setAlignmentX(Component.LEFT_ALIGNMENT);
+        buttons.add(undoButton);
+        buttons.add(Box.createHorizontalStrut(10));
+        buttons.add(redoButton);
+        buttons.setMaximumSize(buttons.getPreferredSize());
+        add(buttons);
         add(Box.createVerticalStrut(10));
 
     // Move list
@@ -124,13 +128,27 @@ public class GameInfoPanel extends JPanel {
         if (!moveListModel.isEmpty()) {
             moveList.ensureIndexIsVisible(moveListModel.size() - 1);
         }
-        // Enable/disable undo button
+        // Enable/disable undo/redo buttons
         if (undoButton != null) {
             undoButton.setEnabled(chessGame.canUndo());
+            redoButton.setEnabled(chessGame.canRedo());
         }
         repaint();
     }
     
+    private void refreshAll() {
+        // Refresh the main UI on EDT
+        SwingUtilities.invokeLater(() -> {
+            Container top = SwingUtilities.getWindowAncestor(this);
+            if (top instanceof ChessGUI) {
+                ((ChessGUI) top).updateDisplay();
+            } else {
+                // Fallback: refresh this panel directly
+                updateDisplay();
+            }
+        });
+    }
+
     private String getStatusMessage(GameState gameState) {
         switch (gameState.getStatus()) {
             case PLAYING:
@@ -143,7 +161,7 @@ public class GameInfoPanel extends JPanel {
             case STALEMATE:
                 return "Stalemate - Draw";
             case DRAW:
-                return "Draw";
+                return "Draw - " + gameState.getDrawReason();
             default:
                 return "Unknown";
         }
@@ -0,0 +1,229 @@
+package perft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import board.BitboardPosition;
+import board.ChessBoard;
+import board.Move;
+import board.MoveGenerator;
+import board.MoveList;
+import game.GameState;
+import pieces.PieceColor;
+
+/**
+ * Perft counts the leaf nodes of the legal move tree to a fixed depth, which checks the move generator
+ * and make/unmake against published counts and measures their throughput.
+ * - The last ply is bulk-counted: the number of legal moves is the number of leaves, nothing is played.
+ * - divide reports the count below each root move. Root moves run as ForkJoin tasks, and subtrees
+ *   deep enough to be worth it fork again at the next ply, so idle workers steal work.
+ * - An optional PerftHashTable, shared by all workers, skips transposed subtrees.
+ * Usage: java perft.Perft [depth] [fen] [--threads n] [--hash mb]
+ * Without a FEN, the standard test positions are run and checked against their known counts.
+ */
+public final class Perft {
+    private Perft() {}
+
+    // Subtrees with at least this many plies left are split into one task per move
+    private static final int SPLIT_DEPTH = 4;
+
+    /** Leaf count of one root move. */
+    public static final class Divide {
+        private final int move;
+        private final long nodes;
+
+        Divide(int move, long nodes) {
+            this.move = move;
+            this.nodes = nodes;
+        }
+
+        public int getMove() {
+            return this.move;
+        }
+
+        public long getNodes() {
+            return this.nodes;
+        }
+
+        @Override
+        public String toString() {
+            return Move.toString(move) + ": " + nodes;
+        }
+    }
+
+    /** Single-threaded perft. hash may be null. */
+    public static long perft(BitboardPosition pos, int depth, PerftHashTable hash) {
+        MoveList[] lists = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+        return perft(pos, depth, hash, lists);
+    }
+
+    /** Per-root-move counts, searched on the given pool. hash may be null. */
+    public static List<Divide> divide(BitboardPosition pos, int depth, PerftHashTable hash, ForkJoinPool pool) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        MoveList roots = new MoveList();
+        int count = MoveGenerator.generateLegalMoves(pos, roots);
+        List<SubtreeTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new SubtreeTask(pos.copy(), roots.get(i), depth - 1, hash));
+        }
+        return pool.invoke(new RecursiveTask<List<Divide>>() {
+            @Override
+            protected List<Divide> compute() {
+                invokeAll(tasks);
+                List<Divide> res = new ArrayList<>(tasks.size());
+                for (SubtreeTask task : tasks) {
+                    res.add(new Divide(task.move, task.join()));
+                }
+                return res;
+            }
+        });
+    }
+
+    /** Divide from a game position, using the common pool and no hash. */
+    public static List<Divide> divide(ChessBoard board, PieceColor player, GameState gameState, int depth) {
+        return divide(BitboardPosition.from(board, player, gameState), depth, null, ForkJoinPool.commonPool());
+    }
+
+    public static long total(List<Divide> divide) {
+        long res = 0;
+        for (Divide d : divide) {
+            res += d.getNodes();
+        }
+        return res;
+    }
+
+    private static long perft(BitboardPosition pos, int depth, PerftHashTable hash, MoveList[] lists) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(pos, moves);
+        if (depth == 1) {
+            return count;
+        }
+        long key = pos.getZobristKey();
+        if (hash != null) {
+            long cached = hash.probe(key, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            pos.makeMove(move);
+            nodes += perft(pos, depth - 1, hash, lists);
+            pos.unmakeMove(move);
+        }
+        if (hash != null) {
+            hash.store(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    /** Counts the subtree below one move, played on a private copy of the position. */
+    private static final class SubtreeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitboardPosition pos;
+        private final int move;
+        private final int depth;
+        private final PerftHashTable hash;
+
+        SubtreeTask(BitboardPosition pos, int move, int depth, PerftHashTable hash) {
+            this.pos = pos;
+            this.move = move;
+            this.depth = depth;
+            this.hash = hash;
+        }
+
+        @Override
+        protected Long compute() {
+            pos.makeMove(move);
+            if (depth < SPLIT_DEPTH) {
+                return perft(pos, depth, hash);
+            }
+            MoveList moves = new MoveList();
+            int count = MoveGenerator.generateLegalMoves(pos, moves);
+            List<SubtreeTask> children = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                children.add(new SubtreeTask(pos.copy(), moves.get(i), depth - 1, hash));
+            }
+            invokeAll(children);
+            long nodes = 0;
+            for (SubtreeTask child : children) {
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+
+    // FEN, then the expected counts from depth 1
+    private static final String[][] TEST_POSITIONS = {
+        {BitboardPosition.START_FEN,
+            "20", "400", "8902", "197281", "4865609", "119060324", "3195901860"},
+        {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "48", "2039", "97862", "4085603", "193690690"},
+        {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "14", "191", "2812", "43238", "674624", "11030083", "178633661"},
+        {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "6", "264", "9467", "422333", "15833292"},
+        {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "44", "1486", "62379", "2103487", "89941194"}
+    };
+
+    public static void main(String[] args) {
+        int depth = 5;
+        String fen = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMb = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--hash")) {
+                hashMb = Integer.parseInt(args[++i]);
+            } else if (args[i].matches("\\d+")) {
+                depth = Integer.parseInt(args[i]);
+            } else {
+                fen = fen == null ? args[i] : fen + " " + args[i];
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        PerftHashTable hash = hashMb > 0 ? new PerftHashTable(hashMb) : null;
+        System.out.println("threads " + threads + ", hash " + (hash == null ? "off" : hashMb + " MB"));
+
+        if (fen != null) {
+            List<Divide> divide = run(BitboardPosition.fromFen(fen), depth, hash, pool, null);
+            for (Divide d : divide) {
+                System.out.println(d);
+            }
+        } else {
+            boolean ok = true;
+            for (String[] test : TEST_POSITIONS) {
+                int d = Math.min(depth, test.length - 1);
+                System.out.println(test[0]);
+                List<Divide> divide = run(BitboardPosition.fromFen(test[0]), d, hash, pool, Long.parseLong(test[d]));
+                ok &= total(divide) == Long.parseLong(test[d]);
+            }
+            System.out.println(ok ? "all counts match" : "COUNT MISMATCH");
+        }
+        pool.shutdown();
+    }
+
+    private static List<Divide> run(BitboardPosition pos, int depth, PerftHashTable hash, ForkJoinPool pool, Long expected) {
+        long start = System.nanoTime();
+        List<Divide> divide = divide(pos, depth, hash, pool);
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+        long nodes = total(divide);
+        System.out.printf("  depth %d: %d nodes in %.3f s, %.0f nodes/s%s%n", depth, nodes, elapsed / 1e9,
+            nodes * 1e9 / elapsed, expected == null ? "" : nodes == expected ? " (ok)" : " (expected " + expected + ")");
+        return divide;
+    }
+}
@@ -0,0 +1,41 @@
+package perft;
+
+/**
+ * PerftHashTable caches subtree leaf counts by (Zobrist key, depth) so transposed subtrees are counted once.
+ * Each entry is two longs, (key ^ data, data) with data = count << 8 | depth. The table is shared by all
+ * perft threads without locks: a torn write leaves an entry whose first word no longer XORs back to the key,
+ * so it simply reads as a miss. Always-replace, since perft revisits the same depths uniformly.
+ */
+public final class PerftHashTable {
+    private final long[] table;
+    private final int mask;
+
+    /** Creates a table of roughly the given size in megabytes (rounded down to a power of two entries). */
+    public PerftHashTable(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("Hash size must be positive: " + megabytes);
+        }
+        long entries = Long.highestOneBit(megabytes * (1L << 20) / 16);
+        entries = Math.min(entries, 1L << 26);
+        this.table = new long[(int) entries * 2];
+        this.mask = (int) entries - 1;
+    }
+
+    /** Returns the cached count for this key and depth, or -1 if there is none. */
+    public long probe(long key, int depth) {
+        int i = ((int) key & mask) << 1;
+        long check = table[i];
+        long data = table[i + 1];
+        if ((check ^ data) != key || (int) (data & 0xFF) != depth) {
+            return -1;
+        }
+        return data >>> 8;
+    }
+
+    public void store(long key, int depth, long count) {
+        int i = ((int) key & mask) << 1;
+        long data = (count << 8) | depth;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+}
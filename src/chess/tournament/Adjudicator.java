@@ -0,0 +1,79 @@
+package tournament;
+
+/**
+ * Adjudicator ends games whose result is no longer in doubt, from the engines' own scores, so a
+ * tournament does not spend its time on won endgames or dead draws. No tablebases are consulted.
+ * - Resign: both engines have agreed for RESIGN_MOVES moves each that one side is ahead by at least
+ *   RESIGN_SCORE (mate scores included); that side wins.
+ * - Draw: from move DRAW_MOVE_NUMBER on, both engines have scored within DRAW_SCORE of equality for
+ *   DRAW_MOVES moves each.
+ * - Move limit: a game still running after MAX_PLIES plies is drawn.
+ * Mate, stalemate, repetition, the fifty-move rule and insufficient material are left to ChessGame.
+ * Scores are fed in from White's point of view, one per ply. Plies without a score (book moves) are
+ * skipped: they neither extend nor break a streak.
+ */
+final class Adjudicator {
+    static final int RESIGN_SCORE = 700;
+    static final int RESIGN_MOVES = 3;
+    static final int DRAW_SCORE = 10;
+    static final int DRAW_MOVES = 8;
+    static final int DRAW_MOVE_NUMBER = 40;
+    static final int MAX_PLIES = 500;
+
+    // Consecutive plies with White / Black winning by the resign score, and with a drawish score
+    private int whiteWinning;
+    private int blackWinning;
+    private int drawish;
+    private String result;
+    private String reason;
+
+    /**
+     * Records the score of the move just played at the given ply (0 = White's first move) and
+     * returns whether the game is now adjudicated.
+     */
+    boolean update(int whiteScore, int ply) {
+        whiteWinning = whiteScore >= RESIGN_SCORE ? whiteWinning + 1 : 0;
+        blackWinning = whiteScore <= -RESIGN_SCORE ? blackWinning + 1 : 0;
+        drawish = Math.abs(whiteScore) <= DRAW_SCORE ? drawish + 1 : 0;
+        return check(ply);
+    }
+
+    /**
+     * Records a move played without a search score (such as a book move) at the given ply, leaving the
+     * streaks as they are, and returns whether the game is now adjudicated.
+     */
+    boolean update(int ply) {
+        return check(ply);
+    }
+
+    private boolean check(int ply) {
+        if (whiteWinning >= 2 * RESIGN_MOVES) {
+            return adjudicate("1-0", "Black resigns");
+        }
+        if (blackWinning >= 2 * RESIGN_MOVES) {
+            return adjudicate("0-1", "White resigns");
+        }
+        if (ply / 2 + 1 >= DRAW_MOVE_NUMBER && drawish >= 2 * DRAW_MOVES) {
+            return adjudicate("1/2-1/2", "Draw by adjudication");
+        }
+        if (ply + 1 >= MAX_PLIES) {
+            return adjudicate("1/2-1/2", "Draw by move limit");
+        }
+        return false;
+    }
+
+    private boolean adjudicate(String result, String reason) {
+        this.result = result;
+        this.reason = reason;
+        return true;
+    }
+
+    /** "1-0", "0-1" or "1/2-1/2" once update returned true, null before. */
+    String getResult() {
+        return this.result;
+    }
+
+    String getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,79 @@
+package tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A finished tournament game: who played it, how it ended and its moves, as written to PGN. */
+final class GameRecord {
+    private final int round;
+    private final String white;
+    private final String black;
+    private final String result;
+    private final String termination;
+    private final String reason;
+    private final String fen;
+    private final int firstPly;
+    private final List<String> moves;
+
+    /**
+     * @param result      "1-0", "0-1" or "1/2-1/2"
+     * @param termination PGN Termination tag: "normal", "adjudication", "time forfeit" or "rules infraction"
+     * @param reason      how the game ended in words, e.g. "White resigns"
+     * @param fen         start position, or null for the standard one
+     * @param firstPly    plies played before the start position (odd when Black moves first)
+     * @param moves       moves in SAN from the start position
+     */
+    GameRecord(int round, String white, String black, String result, String termination, String reason,
+               String fen, int firstPly, List<String> moves) {
+        this.round = round;
+        this.white = white;
+        this.black = black;
+        this.result = result;
+        this.termination = termination;
+        this.reason = reason;
+        this.fen = fen;
+        this.firstPly = firstPly;
+        this.moves = new ArrayList<>(moves);
+    }
+
+    int getRound() {
+        return this.round;
+    }
+
+    String getWhite() {
+        return this.white;
+    }
+
+    String getBlack() {
+        return this.black;
+    }
+
+    String getResult() {
+        return this.result;
+    }
+
+    /** Points scored by White: 1, 0.5 or 0. */
+    double getWhitePoints() {
+        return result.equals("1-0") ? 1.0 : result.equals("0-1") ? 0.0 : 0.5;
+    }
+
+    String getTermination() {
+        return this.termination;
+    }
+
+    String getReason() {
+        return this.reason;
+    }
+
+    String getFen() {
+        return this.fen;
+    }
+
+    int getFirstPly() {
+        return this.firstPly;
+    }
+
+    List<String> getMoves() {
+        return this.moves;
+    }
+}
@@ -0,0 +1,80 @@
+package tournament;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends finished games to a PGN file, each one flushed as soon as it is written, so the file can be
+ * followed (or the run killed) at any time without losing finished games. Safe to use from any thread.
+ */
+final class PgnWriter implements Closeable {
+    private static final int LINE_LENGTH = 79;
+
+    private final BufferedWriter out;
+
+    PgnWriter(Path file) throws IOException {
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+
+    /** Writes one game; event and date (yyyy.MM.dd) are the same for the whole tournament. */
+    synchronized void write(String event, String date, GameRecord game) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        tag(sb, "Event", event);
+        tag(sb, "Site", "?");
+        tag(sb, "Date", date);
+        tag(sb, "Round", Integer.toString(game.getRound()));
+        tag(sb, "White", game.getWhite());
+        tag(sb, "Black", game.getBlack());
+        tag(sb, "Result", game.getResult());
+        if (game.getFen() != null) {
+            tag(sb, "SetUp", "1");
+            tag(sb, "FEN", game.getFen());
+        }
+        List<String> moves = game.getMoves();
+        tag(sb, "PlyCount", Integer.toString(moves.size()));
+        tag(sb, "Termination", game.getTermination());
+        sb.append('\n');
+
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < moves.size(); i++) {
+            int ply = game.getFirstPly() + i;
+            String token = ply % 2 == 0 ? (ply / 2 + 1) + ". " + moves.get(i)
+                : i == 0 ? (ply / 2 + 1) + "... " + moves.get(i) : moves.get(i);
+            append(sb, line, token);
+        }
+        append(sb, line, "{" + game.getReason() + "}");
+        append(sb, line, game.getResult());
+        sb.append(line).append("\n\n");
+        out.write(sb.toString());
+        out.flush();
+    }
+
+    private static void tag(StringBuilder sb, String name, String value) {
+        sb.append('[').append(name).append(" \"").append(value.replace("\\", "\\\\").replace("\"", "\\\""))
+            .append("\"]\n");
+    }
+
+    // Adds a token to the current movetext line, moving full lines to sb
+    private static void append(StringBuilder sb, StringBuilder line, String token) {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+            sb.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
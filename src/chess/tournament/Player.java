@@ -0,0 +1,130 @@
+package tournament;
+
+import java.io.IOException;
+
+import engine.Engine;
+import engine.Evaluator;
+import engine.SearchLimits;
+
+/**
+ * One engine configuration of a tournament, parsed from comma-separated key=value pairs:
+ * - name: shown in reports and PGN (default: the eval name)
+ * - eval: "pst", "material" or an NNUE network file (see Engine.evaluator); hash: table size in MB
+ * - depth, nodes, movetime (ms): fixed limits per move; tc: a clock as base+increment in seconds
+ *   (e.g. tc=10+0.1), which the tournament keeps and the player loses on time if it runs out.
+ * Example: name=new,eval=pst,nodes=20000
+ * The evaluator is loaded once; each engine made by newEngine gets its own (see Evaluator.forThread).
+ */
+final class Player {
+    private final String name;
+    private final Evaluator evaluator;
+    private final int hashMb;
+    private final int depth;
+    private final long nodes;
+    private final long moveTime;
+    private final long baseMillis;
+    private final long incrementMillis;
+
+    private Player(String name, Evaluator evaluator, int hashMb, int depth, long nodes, long moveTime,
+                   long baseMillis, long incrementMillis) {
+        this.name = name;
+        this.evaluator = evaluator;
+        this.hashMb = hashMb;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.moveTime = moveTime;
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    /** Parses a configuration; throws IllegalArgumentException if it is malformed or sets no limit. */
+    static Player parse(String spec) throws IOException {
+        String name = null;
+        String eval = "pst";
+        int hashMb = Engine.DEFAULT_HASH_MB;
+        int depth = -1;
+        long nodes = -1;
+        long moveTime = -1;
+        long baseMillis = -1;
+        long incrementMillis = 0;
+        for (String pair : spec.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + pair);
+            }
+            String key = pair.substring(0, eq).trim();
+            String value = pair.substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "name": name = value; break;
+                    case "eval": eval = value; break;
+                    case "hash": hashMb = Integer.parseInt(value); break;
+                    case "depth": depth = Integer.parseInt(value); break;
+                    case "nodes": nodes = Long.parseLong(value); break;
+                    case "movetime": moveTime = Long.parseLong(value); break;
+                    case "tc":
+                        int plus = value.indexOf('+');
+                        baseMillis = Math.round(Double.parseDouble(plus < 0 ? value : value.substring(0, plus)) * 1000);
+                        incrementMillis = plus < 0 ? 0 : Math.round(Double.parseDouble(value.substring(plus + 1)) * 1000);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown player setting: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number in " + pair);
+            }
+        }
+        if (depth < 0 && nodes < 0 && moveTime < 0 && baseMillis < 0) {
+            throw new IllegalArgumentException("Player needs depth, nodes, movetime or tc: " + spec);
+        }
+        return new Player(name != null ? name : eval, Engine.evaluator(eval), hashMb, depth, nodes, moveTime,
+            baseMillis, incrementMillis);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    /** Whether the player plays on a clock (tc) that the tournament must keep. */
+    boolean hasClock() {
+        return this.baseMillis >= 0;
+    }
+
+    long getBaseMillis() {
+        return this.baseMillis;
+    }
+
+    long getIncrementMillis() {
+        return this.incrementMillis;
+    }
+
+    /** A single-threaded engine with this player's evaluator and hash size. */
+    Engine newEngine() {
+        Engine engine = new Engine(evaluator.forThread());
+        engine.setHashSize(hashMb);
+        return engine;
+    }
+
+    /** Limits for one move, given the player's remaining clock time (ignored without tc). */
+    SearchLimits limits(long remainingMillis) {
+        SearchLimits limits = new SearchLimits();
+        if (depth >= 0) {
+            limits.depth(depth);
+        }
+        if (nodes >= 0) {
+            limits.nodes(nodes);
+        }
+        if (moveTime >= 0) {
+            limits.moveTime(moveTime);
+        }
+        if (hasClock()) {
+            limits.clock(Math.max(remainingMillis, 0), incrementMillis);
+        }
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
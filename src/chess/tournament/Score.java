@@ -0,0 +1,121 @@
+package tournament;
+
+/**
+ * Wins, draws and losses of the first player against the second, and the Elo difference they imply.
+ * - Elo: from the mean score s per game, -400 * log10(1 / s - 1). After n games s is kept within
+ *   [1 / (2n), 1 - 1 / (2n)], so a clean sweep gives a finite Elo and error instead of infinity.
+ * - Error bars: a 95% confidence interval of the mean score (normal approximation with the variance
+ *   of the observed win/draw/loss mix), converted to Elo; reported as half its width.
+ * - LOS: likelihood of superiority, the probability that the first player is the stronger one,
+ *   from wins and losses only (draws carry no information about it).
+ * Instances are immutable; Tournament replaces its Score as games finish.
+ */
+final class Score {
+    private static final double Z_95 = 1.959964;
+
+    private final int wins;
+    private final int draws;
+    private final int losses;
+
+    Score(int wins, int draws, int losses) {
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    /** This score plus one game with the first player's result (1, 0.5 or 0). */
+    Score add(double result) {
+        return result == 1.0 ? new Score(wins + 1, draws, losses)
+            : result == 0.0 ? new Score(wins, draws, losses + 1)
+            : new Score(wins, draws + 1, losses);
+    }
+
+    int getGames() {
+        return wins + draws + losses;
+    }
+
+    int getWins() {
+        return this.wins;
+    }
+
+    int getDraws() {
+        return this.draws;
+    }
+
+    int getLosses() {
+        return this.losses;
+    }
+
+    /** Mean score per game of the first player, 0.5 before any game. */
+    double getMean() {
+        int games = getGames();
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /** Variance of one game's score around the mean. */
+    double getVariance() {
+        int games = getGames();
+        if (games == 0) {
+            return 0.0;
+        }
+        return variance(getMean());
+    }
+
+    private double variance(double s) {
+        int games = getGames();
+        return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / games;
+    }
+
+    double getElo() {
+        return elo(clamp(getMean()));
+    }
+
+    /** Half the width of the 95% confidence interval of getElo. */
+    double getEloError() {
+        int games = getGames();
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double s = clamp(getMean());
+        double margin = Z_95 * Math.sqrt(variance(s) / games);
+        return (elo(clamp(s + margin)) - elo(clamp(s - margin))) / 2;
+    }
+
+    // Mean score kept half a game away from 0 and 1
+    private double clamp(double s) {
+        double limit = 0.5 / Math.max(getGames(), 1);
+        return Math.min(Math.max(s, limit), 1 - limit);
+    }
+
+    /** Likelihood of superiority in [0, 1]; 0.5 without decisive games. */
+    double getLos() {
+        if (wins + losses == 0) {
+            return 0.5;
+        }
+        return 0.5 * (1 + erf((wins - losses) / Math.sqrt(2.0 * (wins + losses))));
+    }
+
+    /** Elo difference that gives the stronger side the mean score s. */
+    static double elo(double s) {
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    /** Mean score of a player the given number of Elo stronger. */
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    // Abramowitz and Stegun 7.1.26, accurate to 1.5e-7
+    private static double erf(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double y = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+            * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("+%d =%d -%d  Elo %.1f +/- %.1f  LOS %.1f%%", wins, draws, losses, getElo(),
+            getEloError(), 100 * getLos());
+    }
+}
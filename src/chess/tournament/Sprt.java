@@ -0,0 +1,60 @@
+package tournament;
+
+/**
+ * Sequential probability ratio test between two hypotheses about the first player's Elo advantage:
+ * H0 "elo0" and H1 "elo1" (e.g. 0 and 5 for "the change gains at least 5 Elo"). After every game the
+ * log-likelihood ratio (LLR) of H1 over H0 is compared with bounds set by the error rates alpha
+ * (accepting H1 when H0 holds) and beta (accepting H0 when H1 holds); the test ends as soon as it
+ * leaves them, usually after far fewer games than a fixed-length match of the same reliability.
+ * The LLR uses the normal approximation of the game results (the "generalized" SPRT), with the
+ * variance observed so far, so draws are accounted for without a draw model.
+ */
+final class Sprt {
+    enum Decision {
+        CONTINUE, ACCEPT_H0, ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double lower;
+    private final double upper;
+
+    Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 must exceed elo0: " + elo0 + ", " + elo1);
+        }
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("Error rates must be in (0, 1): " + alpha + ", " + beta);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lower = Math.log(beta / (1 - alpha));
+        this.upper = Math.log((1 - beta) / alpha);
+    }
+
+    /** Log-likelihood ratio of H1 over H0 given the score so far; 0 while it carries no information. */
+    double llr(Score score) {
+        double variance = score.getVariance();
+        if (variance == 0) {
+            return 0.0;
+        }
+        double s0 = Score.expectedScore(elo0);
+        double s1 = Score.expectedScore(elo1);
+        return score.getGames() * (s1 - s0) * (2 * score.getMean() - s0 - s1) / (2 * variance);
+    }
+
+    Decision decide(Score score) {
+        double llr = llr(score);
+        return llr >= upper ? Decision.ACCEPT_H1 : llr <= lower ? Decision.ACCEPT_H0 : Decision.CONTINUE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SPRT elo0 %.1f elo1 %.1f bounds (%.2f, %.2f)", elo0, elo1, lower, upper);
+    }
+
+    /** LLR and bounds, for progress lines. */
+    String status(Score score) {
+        return String.format("LLR %.2f (%.2f, %.2f)", llr(score), lower, upper);
+    }
+}
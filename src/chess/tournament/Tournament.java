@@ -0,0 +1,321 @@
+package tournament;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import book.PolyglotBook;
+import board.Move;
+import engine.Engine;
+import engine.SearchLimits;
+import engine.SearchResult;
+import game.ChessGame;
+import game.GameState;
+import game.MoveResult;
+import pieces.PieceColor;
+
+/**
+ * Tournament plays a headless match between two engine configurations (see Player) to measure the
+ * Elo difference of a change, reporting it with error bars and optionally stopping early by SPRT.
+ * - Games run as independent ChessGame instances on a fixed pool of worker threads, one per core by
+ *   default; every engine searches with one thread, so the pool keeps each core busy with one game.
+ *   Each worker keeps one Engine per player and clears its hash before every game, so games do not
+ *   depend on which worker played them or on what it played before.
+ * - Openings come in pairs played with both colors: either FENs from a file (one per line) or
+ *   random moves from the start position, rejected if a short search finds them unbalanced. With an
+ *   opening book the random moves are book moves as long as the position is in the book.
+ *   Both are derived from the game number and seed, so a run can be repeated.
+ * - Games end by the rules (ChessGame), by Adjudicator, on time (tc players only) or by an illegal move.
+ * - Every finished game is appended to the PGN file at once; progress and Elo are printed as they go.
+ * - With --sprt, games not yet started are skipped once the test accepts either hypothesis.
+ * Usage: java tournament.Tournament --engine spec --engine spec [--games n] [--concurrency n]
+ *            [--pgn file] [--openings file] [--book file --book-keys file] [--plies n] [--seed n]
+ *            [--sprt elo0 elo1] [--alpha a] [--beta b]
+ */
+public final class Tournament {
+    private static final int DEFAULT_GAMES = 1000;
+    private static final int DEFAULT_RANDOM_PLIES = 8;
+    // Random openings the opening check scores beyond this are replaced
+    private static final int OPENING_MAX_SCORE = 150;
+    private static final int OPENING_CHECK_DEPTH = 4;
+    private static final int OPENING_CHECK_HASH_MB = 1;
+    private static final int PROGRESS_INTERVAL = 10;
+
+    private final Player[] players;
+    private final int games;
+    private final int concurrency;
+    private final List<String> openings;
+    private final PolyglotBook book;
+    private final int randomPlies;
+    private final long seed;
+    private final Sprt sprt;
+    private final PgnWriter pgn;
+    private final String event;
+    private final String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+
+    // Engines of the current worker thread: one per player, then one for opening checks
+    private final ThreadLocal<Engine[]> engines;
+
+    // Guarded by this
+    private Score score = new Score(0, 0, 0);
+    private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+    private volatile boolean finished;
+
+    /**
+     * @param openings    start positions as FENs, or null for random openings of randomPlies plies
+     * @param book        book for the random openings, or null
+     * @param sprt        test to stop at, or null to play all games
+     * @param pgn         where finished games go, or null
+     */
+    Tournament(Player first, Player second, int games, int concurrency, List<String> openings, PolyglotBook book,
+               int randomPlies, long seed, Sprt sprt, PgnWriter pgn) {
+        if (games < 1 || concurrency < 1 || randomPlies < 0) {
+            throw new IllegalArgumentException("Games and concurrency must be positive, plies not negative");
+        }
+        if (openings != null && openings.isEmpty()) {
+            throw new IllegalArgumentException("No openings given");
+        }
+        this.players = new Player[] {first, second};
+        this.games = games;
+        this.concurrency = concurrency;
+        this.openings = openings;
+        this.book = book;
+        this.randomPlies = randomPlies;
+        this.seed = seed;
+        this.sprt = sprt;
+        this.pgn = pgn;
+        this.event = first.getName() + " vs " + second.getName();
+        this.engines = ThreadLocal.withInitial(() -> {
+            Engine checker = new Engine();
+            checker.setHashSize(OPENING_CHECK_HASH_MB);
+            return new Engine[] {first.newEngine(), second.newEngine(), checker};
+        });
+    }
+
+    /** Plays all games (or until the SPRT decides) and returns the first player's score. */
+    Score run() throws InterruptedException {
+        System.out.println(event + ": " + games + " games, " + concurrency + " workers"
+            + (sprt != null ? ", " + sprt : ""));
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < games; i++) {
+            int index = i;
+            pool.execute(() -> playAndRecord(index));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            System.out.println("Final: " + progress());
+            if (decision != Sprt.Decision.CONTINUE) {
+                System.out.println(decision == Sprt.Decision.ACCEPT_H1 ? "H1 accepted" : "H0 accepted");
+            }
+            return score;
+        }
+    }
+
+    private void playAndRecord(int index) {
+        if (finished) {
+            return;
+        }
+        try {
+            GameRecord game = play(index);
+            boolean firstIsWhite = index % 2 == 0;
+            double points = firstIsWhite ? game.getWhitePoints() : 1 - game.getWhitePoints();
+            synchronized (this) {
+                score = score.add(points);
+                if (sprt != null && decision == Sprt.Decision.CONTINUE) {
+                    decision = sprt.decide(score);
+                    finished = decision != Sprt.Decision.CONTINUE;
+                }
+                if (score.getGames() % PROGRESS_INTERVAL == 0 || finished) {
+                    System.out.println(progress());
+                }
+            }
+            if (pgn != null) {
+                pgn.write(event, date, game);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Game " + (index + 1) + " failed: " + e);
+        }
+    }
+
+    private String progress() {
+        return "Games " + score.getGames() + ": " + score + (sprt != null ? "  " + sprt.status(score) : "");
+    }
+
+    /** Plays game index: opening index / 2, the first player White in even games. */
+    private GameRecord play(int index) {
+        Engine[] workerEngines = engines.get();
+        int white = index % 2;
+        int black = 1 - white;
+        Player[] sides = {players[white], players[black]};
+        Engine[] sideEngines = {workerEngines[white], workerEngines[black]};
+        for (Engine engine : sideEngines) {
+            engine.clearHash();
+        }
+
+        ChessGame game = new ChessGame();
+        String fen = setUpOpening(game, index / 2, workerEngines[2]);
+        int firstPly = fen != null ? game.getGameState().getMoveCount() : 0;
+        long[] clocks = {sides[0].getBaseMillis(), sides[1].getBaseMillis()};
+        Adjudicator adjudicator = new Adjudicator();
+        String result = null;
+        String termination = "normal";
+        String reason = null;
+        while (result == null) {
+            GameState state = game.getGameState();
+            if (state.isGameOver()) {
+                boolean whiteToMove = state.getCurrentPlayer() == PieceColor.WHITE;
+                switch (state.getStatus()) {
+                    case CHECKMATE:
+                        result = whiteToMove ? "0-1" : "1-0";
+                        reason = whiteToMove ? "Black mates" : "White mates";
+                        break;
+                    case STALEMATE:
+                        result = "1/2-1/2";
+                        reason = "Stalemate";
+                        break;
+                    default:
+                        result = "1/2-1/2";
+                        reason = "Draw by " + state.getDrawReason();
+                        break;
+                }
+                break;
+            }
+            int side = state.getCurrentPlayer() == PieceColor.WHITE ? 0 : 1;
+            Player player = sides[side];
+            long start = System.nanoTime();
+            SearchResult searched = sideEngines[side].search(game, player.limits(clocks[side]), null);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            if (player.hasClock()) {
+                clocks[side] -= elapsed;
+                if (clocks[side] < 0) {
+                    result = side == 0 ? "0-1" : "1-0";
+                    termination = "time forfeit";
+                    reason = (side == 0 ? "White" : "Black") + " loses on time";
+                    break;
+                }
+                clocks[side] += player.getIncrementMillis();
+            }
+            if (game.makeMove(searched.getBestMove()) == MoveResult.ILLEGAL) {
+                result = side == 0 ? "0-1" : "1-0";
+                termination = "rules infraction";
+                reason = (side == 0 ? "White" : "Black") + " makes an illegal move";
+                break;
+            }
+            int ply = game.getGameState().getMoveCount() - 1;
+            boolean adjudicated = searched.getInfo() != null
+                ? adjudicator.update(side == 0 ? searched.getInfo().getScore() : -searched.getInfo().getScore(), ply)
+                : adjudicator.update(ply);
+            if (adjudicated) {
+                result = adjudicator.getResult();
+                termination = "adjudication";
+                reason = adjudicator.getReason();
+            }
+        }
+        return new GameRecord(index + 1, sides[0].getName(), sides[1].getName(), result, termination, reason,
+            fen, firstPly, game.getMoveHistory());
+    }
+
+    /**
+     * Sets up the opening of a game pair. Returns its FEN when it comes from the openings file, or
+     * null when random moves were played from the start position (they are part of the game's moves).
+     */
+    private String setUpOpening(ChessGame game, int pair, Engine checker) {
+        if (openings != null) {
+            String fen = openings.get(pair % openings.size());
+            game.resetGame(fen);
+            return fen;
+        }
+        Random random = new Random(seed * 1_000_003L + pair);
+        while (true) {
+            game.resetGame();
+            for (int i = 0; i < randomPlies && !game.getGameState().isGameOver(); i++) {
+                int move = book != null ? game.getBookMove(book, random) : Move.NONE;
+                game.makeMove(move != Move.NONE ? move : game.getLegalMoves().get(random.nextInt(game.getLegalMoves().size())));
+            }
+            if (game.getGameState().isGameOver()) {
+                continue;
+            }
+            // A fresh table and a fixed depth keep the check, and so the opening, the same on every worker
+            checker.clearHash();
+            SearchResult check = checker.search(game, new SearchLimits().depth(OPENING_CHECK_DEPTH), null);
+            if (check.getInfo() != null && Math.abs(check.getInfo().getScore()) <= OPENING_MAX_SCORE) {
+                return null;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Player> players = new ArrayList<>();
+        int games = DEFAULT_GAMES;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        String pgnFile = null;
+        List<String> openings = null;
+        String bookFile = null;
+        String bookKeys = null;
+        int plies = DEFAULT_RANDOM_PLIES;
+        long seed = 1;
+        double elo0 = Double.NaN;
+        double elo1 = Double.NaN;
+        double alpha = 0.05;
+        double beta = 0.05;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine": players.add(Player.parse(args[++i])); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[++i]); break;
+                case "--pgn": pgnFile = args[++i]; break;
+                case "--openings": openings = readOpenings(args[++i]); break;
+                case "--book": bookFile = args[++i]; break;
+                case "--book-keys": bookKeys = args[++i]; break;
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--sprt":
+                    elo0 = Double.parseDouble(args[++i]);
+                    elo1 = Double.parseDouble(args[++i]);
+                    break;
+                case "--alpha": alpha = Double.parseDouble(args[++i]); break;
+                case "--beta": beta = Double.parseDouble(args[++i]); break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (players.size() != 2) {
+            throw new IllegalArgumentException("Exactly two --engine configurations are needed");
+        }
+        if (bookFile != null && bookKeys == null) {
+            throw new IllegalArgumentException("--book needs --book-keys");
+        }
+        PolyglotBook book = bookFile != null ? PolyglotBook.open(Paths.get(bookFile), Paths.get(bookKeys)) : null;
+        Sprt sprt = Double.isNaN(elo0) ? null : new Sprt(elo0, elo1, alpha, beta);
+        PgnWriter pgn = pgnFile != null ? new PgnWriter(Paths.get(pgnFile)) : null;
+        try {
+            new Tournament(players.get(0), players.get(1), games, concurrency, openings, book, plies, seed, sprt,
+                pgn).run();
+        } finally {
+            if (pgn != null) {
+                pgn.close();
+            }
+        }
+    }
+
+    // FENs, one per line; blank lines and lines starting with # are skipped
+    private static List<String> readOpenings(String file) throws IOException {
+        List<String> fens = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                fens.add(line);
+            }
+        }
+        return fens;
+    }
+}
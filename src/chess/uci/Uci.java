@@ -0,0 +1,403 @@
+package uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import bitbase.Bitbases;
+import book.PolyglotBook;
+import board.Move;
+import board.MoveList;
+import engine.Engine;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import game.ChessGame;
+import pieces.PieceColor;
+
+/**
+ * Uci is a headless front-end speaking the Universal Chess Interface on standard input and output,
+ * for GUIs, match runners and servers without a display. It loads no AWT or Swing classes.
+ * - The input thread only parses commands. Searches run on one worker thread, which streams an
+ *   "info" line per completed iteration and ends with "bestmove", so "stop", "ponderhit" and
+ *   "isready" are answered while the engine thinks.
+ * - Positions are set up in a ChessGame ("position startpos|fen ... moves ..."); each move must be one
+ *   of the game's legal moves (MoveValidator), so the search sees the game's repetition history.
+ * - "go" understands depth, nodes, movetime, wtime/btime, winc/binc, movestogo, ponder and infinite.
+ *   After "go ponder" or "go infinite" the best move is held back until "ponderhit" or "stop".
+ * - Options: Hash (MB), Threads, Eval ("pst", "material" or an NNUE network file), Ponder, Clear Hash,
+ *   BookFile / BookKeys: a Polyglot book and its random numbers (see PolyglotKeys), used once both are set
+ *   (a book without its numbers is reported, not ignored silently),
+ *   and BitbaseFile: endgame bitbases, generated into the file first if it does not exist (see Bitbases).
+ * Usage: java uci.Uci
+ */
+public final class Uci {
+    private static final String NAME = "Java Chess";
+    private static final int MAX_HASH_MB = 65536;
+    private static final int MAX_THREADS = 256;
+
+    private final PrintStream out;
+    private final ChessGame game = new ChessGame();
+    private Engine engine = new Engine();
+    private int hashMb = Engine.DEFAULT_HASH_MB;
+    private int threads = 1;
+    private String bookFile = "";
+    private String bookKeys = "";
+    private Bitbases bitbases;
+
+    private Thread worker;
+    private volatile boolean searchReturned;
+    // Guarded by this: while set, the worker waits before sending bestmove (go ponder / go infinite)
+    private boolean holdBestMove;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        new Uci(out).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    /** Reads commands until "quit" or end of input; a search still running is stopped first. */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].equals("quit")) {
+                break;
+            }
+            try {
+                execute(tokens);
+            } catch (IllegalArgumentException e) {
+                send("info string " + e.getMessage());
+            }
+        }
+        stopSearch();
+        awaitSearch();
+    }
+
+    private void execute(String[] tokens) {
+        switch (tokens[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + NAME + " authors");
+                send("option name Hash type spin default " + Engine.DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Eval type string default pst");
+                send("option name Ponder type check default false");
+                send("option name Clear Hash type button");
+                send("option name BookFile type string default <empty>");
+                send("option name BookKeys type string default <empty>");
+                send("option name BitbaseFile type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                awaitSearch();
+                setOption(tokens);
+                break;
+            case "ucinewgame":
+                awaitSearch();
+                engine.clearHash();
+                game.resetGame();
+                break;
+            case "position":
+                awaitSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                awaitSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "ponderhit":
+                awaitSearchStarted();
+                engine.ponderHit();
+                release();
+                break;
+            default:
+                // Unknown commands are ignored, as the protocol asks
+                break;
+        }
+    }
+
+    /** "setoption name <id> [value <x>]"; the name may contain spaces. */
+    private void setOption(String[] tokens) {
+        String name = between(tokens, "name", "value");
+        String value = between(tokens, "value", null);
+        switch (name.toLowerCase()) {
+            case "hash":
+                hashMb = parseInt(value, 1, MAX_HASH_MB);
+                engine.setHashSize(hashMb);
+                break;
+            case "threads":
+                threads = parseInt(value, 1, MAX_THREADS);
+                engine.setThreads(threads);
+                break;
+            case "eval":
+                try {
+                    engine = new Engine(Engine.evaluator(value));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Cannot load evaluator " + value + ": " + e.getMessage());
+                }
+                engine.setHashSize(hashMb);
+                engine.setThreads(threads);
+                setBook();
+                engine.setBitbases(bitbases);
+                break;
+            case "clear hash":
+                engine.clearHash();
+                break;
+            case "bookfile":
+                bookFile = value.equals("<empty>") ? "" : value;
+                setBook();
+                break;
+            case "bookkeys":
+                bookKeys = value.equals("<empty>") ? "" : value;
+                setBook();
+                break;
+            case "bitbasefile":
+                bitbases = null;
+                engine.setBitbases(null);
+                if (!value.equals("<empty>") && !value.isEmpty()) {
+                    try {
+                        bitbases = Bitbases.loadOrGenerate(Paths.get(value));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot open bitbases " + value + ": " + e.getMessage());
+                    }
+                    engine.setBitbases(bitbases);
+                }
+                break;
+            case "ponder":
+                // Pondering needs no preparation; the GUI decides when to send "go ponder"
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + name);
+        }
+    }
+
+    private void setBook() {
+        if (bookFile.isEmpty() || bookKeys.isEmpty()) {
+            engine.setBook(null);
+            if (!bookFile.isEmpty()) {
+                send("info string Book " + bookFile + " is not used until BookKeys is set");
+            }
+            return;
+        }
+        try {
+            engine.setBook(PolyglotBook.open(Paths.get(bookFile), Paths.get(bookKeys)));
+        } catch (IOException e) {
+            engine.setBook(null);
+            throw new IllegalArgumentException("Cannot open book " + bookFile + ": " + e.getMessage());
+        }
+    }
+
+    /** "position startpos|fen <fen> [moves <m1> <m2> ...]" */
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            game.resetGame();
+            i = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            game.resetGame(between(tokens, "fen", "moves"));
+            i = 2;
+            while (i < tokens.length && !tokens[i].equals("moves")) {
+                i++;
+            }
+        } else {
+            throw new IllegalArgumentException("Expected startpos or fen: " + String.join(" ", tokens));
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = findMove(tokens[i]);
+                if (move == Move.NONE) {
+                    throw new IllegalArgumentException("Illegal move: " + tokens[i]);
+                }
+                game.makeMove(move);
+            }
+        }
+    }
+
+    private int findMove(String name) {
+        MoveList moves = game.getLegalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(name)) {
+                return moves.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    private void go(String[] tokens) {
+        SearchLimits limits = new SearchLimits();
+        boolean white = game.getGameState().getCurrentPlayer() == PieceColor.WHITE;
+        long time = -1;
+        long increment = 0;
+        boolean hold = false;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "depth":
+                    limits.depth(parseInt(value(tokens, ++i), 1, Search.MAX_PLY));
+                    break;
+                case "nodes":
+                    limits.nodes(parseLong(value(tokens, ++i)));
+                    break;
+                case "movetime":
+                    limits.moveTime(parseLong(value(tokens, ++i)));
+                    break;
+                case "wtime":
+                case "btime":
+                    if (tokens[i].equals(white ? "wtime" : "btime")) {
+                        time = Math.max(parseLong(value(tokens, ++i)), 0);
+                    } else {
+                        i++;
+                    }
+                    break;
+                case "winc":
+                case "binc":
+                    if (tokens[i].equals(white ? "winc" : "binc")) {
+                        increment = Math.max(parseLong(value(tokens, ++i)), 0);
+                    } else {
+                        i++;
+                    }
+                    break;
+                case "movestogo":
+                    limits.movesToGo(parseInt(value(tokens, ++i), 0, Integer.MAX_VALUE));
+                    break;
+                case "ponder":
+                    limits.ponder();
+                    hold = true;
+                    break;
+                case "infinite":
+                    hold = true;
+                    break;
+                default:
+                    // searchmoves and mate are not supported; their arguments are skipped as unknown tokens
+                    break;
+            }
+        }
+        if (time >= 0) {
+            limits.clock(time, increment);
+        }
+        synchronized (this) {
+            holdBestMove = hold;
+        }
+        Engine searching = engine;
+        searchReturned = false;
+        worker = new Thread(() -> {
+            SearchResult result = searching.search(game, limits, info -> send("info " + info));
+            searchReturned = true;
+            synchronized (this) {
+                while (holdBestMove) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            int ponder = result.getPonderMove();
+            send("bestmove " + Move.toString(result.getBestMove())
+                + (ponder != Move.NONE ? " ponder " + Move.toString(ponder) : ""));
+        }, "uci-search");
+        worker.start();
+    }
+
+    /** Stops the search, if one is running, and lets it send its best move. */
+    private void stopSearch() {
+        awaitSearchStarted();
+        engine.stop();
+        release();
+    }
+
+    private synchronized void release() {
+        holdBestMove = false;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the worker's search has started (or the worker is done), so a stop or ponderhit sent
+     * right after "go" reaches the search instead of being lost.
+     */
+    private void awaitSearchStarted() {
+        while (worker != null && worker.isAlive() && !searchReturned && !engine.isSearching()) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Waits for the last search to send its best move. */
+    private void awaitSearch() {
+        if (worker == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        worker = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(String line) {
+        out.println(line);
+    }
+
+    private static String value(String[] tokens, int i) {
+        if (i >= tokens.length) {
+            throw new IllegalArgumentException("Missing value after " + tokens[i - 1]);
+        }
+        return tokens[i];
+    }
+
+    /** The tokens after the first occurrence of from, up to (not including) until or the end, joined by spaces. */
+    private static String between(String[] tokens, String from, String until) {
+        StringBuilder sb = new StringBuilder();
+        boolean inside = false;
+        for (String token : tokens) {
+            if (inside && token.equals(until)) {
+                break;
+            }
+            if (inside) {
+                sb.append(sb.length() > 0 ? " " : "").append(token);
+            } else if (token.equals(from)) {
+                inside = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseInt(String value, int min, int max) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n < min || n > max) {
+                throw new IllegalArgumentException("Value out of range " + min + ".." + max + ": " + value);
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+}